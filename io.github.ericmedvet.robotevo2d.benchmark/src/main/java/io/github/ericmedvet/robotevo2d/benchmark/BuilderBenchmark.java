@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.benchmark;
+
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for parsing an experiment description and building the experiment, for each of the experiment examples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuilderBenchmark {
+
+  @Param({"centralized-vsr", "legged"})
+  public String experimentName;
+
+  private NamedBuilder<Object> nb;
+  private String experimentDescription;
+
+  @Setup
+  public void setup() {
+    nb = PreparedNamedBuilder.get();
+    experimentDescription = Resources.read("/exp-examples/%s.txt".formatted(experimentName));
+  }
+
+  @Benchmark
+  public Object build() {
+    return nb.build(experimentDescription);
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.benchmark;
+
+import io.github.ericmedvet.jgea.experimenter.InvertibleMapper;
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of the parametrized mappers, in terms of just applying them and of building the actual agent, for
+ * distributed VSRs with brains (hence genotypes) of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+  private final static String TARGET_DESCRIPTION = """
+      s.a.distributedNumGridVSR(
+        body = s.a.vsr.gridBody(
+          shape = s.a.vsr.s.worm(w = 8; h = 3);
+          sensorizingFunction = s.a.vsr.sf.uniform(sensors = [s.s.ar(); s.s.rv(a = 0); s.s.rv(a = 90); s.s.a()])
+        );
+        signals = 2;
+        function = %s(innerLayerRatio = %s)
+      )""";
+
+  @Param({"s.f.mlp", "er.f.sharedMlp"})
+  public String function;
+
+  @Param({"parametrizedHeteroBrains", "parametrizedHomoBrains", "arrayParametrizedHomoBrains"})
+  public String mapperName;
+
+  @Param({"0.5", "1", "2", "4"})
+  public String innerLayerRatio;
+
+  private InvertibleMapper<Object, Supplier<?>> mapper;
+  private Object genotype;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    NamedBuilder<Object> nb = PreparedNamedBuilder.get();
+    mapper = (InvertibleMapper<Object, Supplier<?>>) nb.build("er.m.%s(target = %s)".formatted(
+        mapperName,
+        TARGET_DESCRIPTION.formatted(function, innerLayerRatio)
+    ));
+    Random random = new Random(1);
+    Object exampleInput = mapper.exampleInput();
+    if (exampleInput instanceof double[] values) {
+      genotype = Arrays.stream(values).map(v -> random.nextGaussian()).toArray();
+    } else {
+      genotype = ((List<?>) exampleInput).stream().map(v -> random.nextGaussian()).toList();
+    }
+  }
+
+  @Benchmark
+  public Object apply() {
+    return mapper.apply(genotype);
+  }
+
+  @Benchmark
+  public Object build() {
+    return mapper.apply(genotype).get();
+  }
+
+}
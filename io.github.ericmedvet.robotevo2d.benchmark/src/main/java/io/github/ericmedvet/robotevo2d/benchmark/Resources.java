@@ -0,0 +1,43 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.stream.Collectors;
+
+public class Resources {
+
+  private Resources() {
+  }
+
+  public static String read(String resourcePath) {
+    InputStream inputStream = Resources.class.getResourceAsStream(resourcePath);
+    if (inputStream == null) {
+      throw new IllegalArgumentException("Cannot find resource %s".formatted(resourcePath));
+    }
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
+      return br.lines().collect(Collectors.joining());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read resource %s".formatted(resourcePath), e);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.benchmark;
+
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.mrsim2d.core.Agent;
+import io.github.ericmedvet.mrsim2d.core.engine.Engine;
+import io.github.ericmedvet.mrsim2d.core.tasks.Task;
+import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Simulated seconds per wall-clock second of a locomotion task, for each of the agent examples. The agent is built
+ * before each invocation, out of the timed method, so that only the simulation is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SimulationBenchmark {
+
+  private final static int DURATION = 10;
+
+  @Param({
+      "vsr-centralized-biped",
+      "vsr-centralized-free",
+      "vsr-distributed-worm",
+      "hybrid-vsr-distributed-tripod",
+      "legged-passive-3",
+      "legged-active-4",
+      "legged-modular-active-4"
+  })
+  public String agentName;
+
+  private Supplier<Engine> engineSupplier;
+  private Task<Supplier<Agent>, ?> task;
+  private NamedBuilder<Object> nb;
+  private String agentDescription;
+  private Agent agent;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    nb = PreparedNamedBuilder.get();
+    agentDescription = Resources.read("/agent-examples/%s.txt".formatted(agentName));
+    engineSupplier = (Supplier<Engine>) nb.build("s.engine()");
+    task = (Task<Supplier<Agent>, ?>) nb.build("s.task.locomotion(duration = %d)".formatted(DURATION));
+  }
+
+  @Setup(Level.Invocation)
+  public void buildAgent() {
+    agent = (Agent) nb.build(agentDescription);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DURATION)
+  public Object simulate() {
+    return task.run(() -> agent, engineSupplier.get(), snapshot -> {
+    });
+  }
+
+}
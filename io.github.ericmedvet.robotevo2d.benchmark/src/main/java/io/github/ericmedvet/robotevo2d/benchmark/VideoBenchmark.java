@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.benchmark;
+
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.mrsim2d.core.Agent;
+import io.github.ericmedvet.mrsim2d.core.engine.Engine;
+import io.github.ericmedvet.mrsim2d.core.tasks.Task;
+import io.github.ericmedvet.mrsim2d.viewer.Drawer;
+import io.github.ericmedvet.mrsim2d.viewer.VideoBuilder;
+import io.github.ericmedvet.mrsim2d.viewer.VideoUtils;
+import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.builders.Misc;
+import io.github.ericmedvet.robotevo2d.main.util.PipelinedVideoBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Time per frame of a video made as in {@code er.video()}, i.e., simulating, drawing, and encoding, with and without
+ * pipelining; the simulation alone is measured by {@link SimulationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VideoBenchmark {
+
+  private final static int DURATION = 2;
+  private final static int FRAME_RATE = 30;
+
+  @Param({"vsr-centralized-biped", "legged-modular-active-4"})
+  public String agentName;
+
+  @Param({"false", "true"})
+  public boolean pipelined;
+
+  private Supplier<Engine> engineSupplier;
+  private Task<Supplier<Agent>, ?> task;
+  private Supplier<Agent> agentSupplier;
+  private Function<String, Drawer> drawer;
+  private File file;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() throws IOException {
+    NamedBuilder<Object> nb = PreparedNamedBuilder.get();
+    String agentDescription = Resources.read("/agent-examples/%s.txt".formatted(agentName));
+    engineSupplier = (Supplier<Engine>) nb.build("s.engine()");
+    task = (Task<Supplier<Agent>, ?>) nb.build("s.task.locomotion(duration = %d)".formatted(DURATION));
+    drawer = (Function<String, Drawer>) nb.build("s.drawer()");
+    agentSupplier = () -> (Agent) nb.build(agentDescription);
+    file = File.createTempFile("video", ".mp4");
+    file.deleteOnExit();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DURATION * FRAME_RATE)
+  public File video() {
+    VideoBuilder videoBuilder = new VideoBuilder(
+        Misc.FILE_VIDEO_W,
+        Misc.FILE_VIDEO_H,
+        0,
+        DURATION,
+        FRAME_RATE,
+        VideoUtils.EncoderFacility.JCODEC,
+        file,
+        drawer.apply(agentName)
+    );
+    if (pipelined) {
+      try (PipelinedVideoBuilder pipelinedVideoBuilder = new PipelinedVideoBuilder(videoBuilder)) {
+        task.run(agentSupplier, engineSupplier.get(), pipelinedVideoBuilder);
+        return pipelinedVideoBuilder.get();
+      }
+    }
+    task.run(agentSupplier, engineSupplier.get(), videoBuilder);
+    return videoBuilder.get();
+  }
+
+}
@@ -19,16 +19,27 @@ package io.github.ericmedvet.robotevo2d.main;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
+import io.github.ericmedvet.jgea.core.listener.NamedFunction;
 import io.github.ericmedvet.jnb.core.BuilderException;
 import io.github.ericmedvet.jnb.core.NamedBuilder;
 import io.github.ericmedvet.mrsim2d.core.Snapshot;
 import io.github.ericmedvet.mrsim2d.viewer.RealtimeViewer;
 import io.github.ericmedvet.mrsim2d.viewer.VideoBuilder;
+import io.github.ericmedvet.robotevo2d.main.util.DecoupledViewer;
+import io.github.ericmedvet.robotevo2d.main.util.PipelinedVideoBuilder;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -47,6 +58,24 @@ public class Player {
     )
     public String playDescriptionFilePath = "";
 
+    @Parameter(
+        names = {"--nOfThreads", "-n"},
+        description = "Number of threads to be used for a batch play."
+    )
+    public int nOfThreads = 1;
+
+    @Parameter(
+        names = {"--decoupledViewer", "-d"},
+        description = "Simulate on a separate thread, showing just the latest snapshot at the viewer frame rate."
+    )
+    public boolean decoupledViewer = false;
+
+    @Parameter(
+        names = {"--fullSpeed"},
+        description = "With a decoupled viewer, simulate as fast as possible, rather than in real time."
+    )
+    public boolean fullSpeed = false;
+
     @Parameter(
         names = {"--help", "-h"},
         description = "Show this help.",
@@ -56,6 +85,89 @@ public class Player {
 
   }
 
+  private static String csvField(String s) {
+    // fields are quoted only if needed, as by the CSV printers of jgea, with quotes doubled
+    if (s.contains(";") || s.contains("\"") || s.contains("\n") || s.contains("\r")) {
+      return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+    return s;
+  }
+
+  private static void batchPlay(BatchPlay<Object, Object, Object> batchPlay, int nOfThreads) {
+    List<NamedFunction<Object, ?>> functions = batchPlay.functions() == null ? List.of() : batchPlay.functions();
+    boolean doVideos = batchPlay.videoDirPath() != null && !batchPlay.videoDirPath().isEmpty();
+    ExecutorService executorService = Executors.newFixedThreadPool(nOfThreads);
+    try (PrintStream ps = new PrintStream(new FileOutputStream(batchPlay.csvFilePath()))) {
+      List<String> header = new ArrayList<>(List.of("genotype", "task"));
+      functions.forEach(f -> header.add(f.getName()));
+      if (doVideos) {
+        header.add("video");
+      }
+      ps.println(String.join(";", header.stream().map(Player::csvField).toList()));
+      //one job for each genotype and task, with the outcomes written as soon as available
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < batchPlay.genotypes().size(); i++) {
+        for (int j = 0; j < batchPlay.tasks().size(); j++) {
+          int genotypeIndex = i;
+          int taskIndex = j;
+          futures.add(executorService.submit(() -> {
+            Object genotype = batchPlay.genotypes().get(genotypeIndex).apply(batchPlay.mapper().exampleInput());
+            Object solution = batchPlay.mapper().apply(genotype);
+            PipelinedVideoBuilder videoBuilder = null;
+            Consumer<Snapshot> consumer = snapshot -> {};
+            if (doVideos) {
+              String videoName = "video-g%d-t%d".formatted(genotypeIndex, taskIndex);
+              videoBuilder = new PipelinedVideoBuilder(new VideoBuilder(
+                  batchPlay.w(),
+                  batchPlay.h(),
+                  batchPlay.startTime(),
+                  batchPlay.endTime(),
+                  batchPlay.frameRate(),
+                  batchPlay.codec(),
+                  new File(batchPlay.videoDirPath() + File.separator + videoName + ".mp4"),
+                  batchPlay.drawer().apply(videoName)
+              ));
+              consumer = videoBuilder;
+            }
+            List<String> values = new ArrayList<>(List.of(Integer.toString(genotypeIndex), Integer.toString(taskIndex)));
+            try {
+              Object outcome = batchPlay.tasks()
+                  .get(taskIndex)
+                  .run(solution, batchPlay.engineSupplier().get(), consumer);
+              functions.forEach(f -> values.add(String.valueOf(f.apply(outcome))));
+              if (videoBuilder != null) {
+                File file = videoBuilder.get();
+                values.add(file == null ? "" : file.getPath());
+              }
+            } finally {
+              if (videoBuilder != null) {
+                videoBuilder.close();
+              }
+            }
+            synchronized (ps) {
+              ps.println(String.join(";", values.stream().map(Player::csvField).toList()));
+              ps.flush();
+            }
+            L.info("Genotype %d done on task %d".formatted(genotypeIndex, taskIndex));
+          }));
+        }
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          L.warning("Cannot play: %s".formatted(e.getCause()));
+        }
+      }
+    } catch (IOException e) {
+      L.severe("Cannot write outcomes on %s: %s".formatted(batchPlay.csvFilePath(), e));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   public static void main(String[] args) {
     //read configuration
     Configuration configuration = new Configuration();
@@ -100,10 +212,17 @@ public class Player {
     }
     //run player
     try {
+      Object built = nb.build(playDescription);
+      //possibly do batch play
+      if (built instanceof BatchPlay<?, ?, ?>) {
+        @SuppressWarnings("unchecked") BatchPlay<Object, Object, Object> batchPlay =
+            (BatchPlay<Object, Object, Object>) built;
+        batchPlay(batchPlay, configuration.nOfThreads);
+        return;
+      }
       //build solution
       L.config("Building genotype");
-      @SuppressWarnings("unchecked") Play<Object, Object, Object> play = (Play<Object, Object, Object>) nb.build(
-          playDescription);
+      @SuppressWarnings("unchecked") Play<Object, Object, Object> play = (Play<Object, Object, Object>) built;
       Object genotype = play.genotype().apply(play.mapper().exampleInput());
       L.config("Building solution");
       Object solution = play.mapper().apply(genotype);
@@ -112,8 +231,11 @@ public class Player {
       String drawerInfo = play.name() == null ? "" : play.name();
       if (play.videoFilePath() == null || play.videoFilePath().isEmpty()) {
         consumer = new RealtimeViewer(play.frameRate(), play.drawer().apply(drawerInfo));
+        if (configuration.decoupledViewer) {
+          consumer = new DecoupledViewer(play.frameRate(), consumer, !configuration.fullSpeed);
+        }
       } else {
-        consumer = new VideoBuilder(
+        consumer = new PipelinedVideoBuilder(new VideoBuilder(
             play.w(),
             play.h(),
             play.startTime(),
@@ -122,20 +244,29 @@ public class Player {
             play.codec(),
             new File(play.videoFilePath()),
             play.drawer().apply(drawerInfo)
-        );
+        ));
       }
       //do task
       L.info("Executing the task");
-      Object outcome = play.task().run(solution, play.engineSupplier().get(), consumer);
-      L.info("The outcome of the task is %s".formatted(outcome));
-      //possibly save video
-      if (consumer instanceof VideoBuilder videoBuilder) {
-        L.info("Doing video");
-        File file = videoBuilder.get();
-        if (file != null) {
-          L.info("Video done and saved on file %s".formatted(file.getAbsolutePath()));
-        } else {
-          L.warning("Could not save video file");
+      try {
+        Object outcome = play.task().run(solution, play.engineSupplier().get(), consumer);
+        L.info("The outcome of the task is %s".formatted(outcome));
+        if (consumer instanceof DecoupledViewer decoupledViewer) {
+          decoupledViewer.close();
+        }
+        //possibly save video
+        if (consumer instanceof PipelinedVideoBuilder videoBuilder) {
+          L.info("Doing video");
+          File file = videoBuilder.get();
+          if (file != null) {
+            L.info("Video done and saved on file %s".formatted(file.getAbsolutePath()));
+          } else {
+            L.warning("Could not save video file");
+          }
+        }
+      } finally {
+        if (consumer instanceof PipelinedVideoBuilder videoBuilder) {
+          videoBuilder.close();
         }
       }
     } catch (BuilderException e) {
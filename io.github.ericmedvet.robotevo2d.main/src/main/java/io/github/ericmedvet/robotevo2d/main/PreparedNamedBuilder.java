@@ -17,9 +17,13 @@
 package io.github.ericmedvet.robotevo2d.main;
 
 import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.builders.Functions;
 import io.github.ericmedvet.robotevo2d.main.builders.Listeners;
 import io.github.ericmedvet.robotevo2d.main.builders.Mappers;
 import io.github.ericmedvet.robotevo2d.main.builders.Misc;
+import io.github.ericmedvet.robotevo2d.main.builders.NamedFunctions;
+import io.github.ericmedvet.robotevo2d.main.builders.Problems;
+import io.github.ericmedvet.robotevo2d.main.builders.Tasks;
 
 import java.util.List;
 
@@ -31,8 +35,13 @@ public class PreparedNamedBuilder {
       .and(List.of("evorobots", "er"), NamedBuilder.empty()
           .and(NamedBuilder.fromUtilityClass(Misc.class))
           .and(NamedBuilder.fromClass(Play.class))
+          .and(NamedBuilder.fromClass(BatchPlay.class))
           .and(List.of("mapper", "m"), NamedBuilder.fromUtilityClass(Mappers.class))
           .and(List.of("listener", "l"), NamedBuilder.fromUtilityClass(Listeners.class))
+          .and(List.of("function", "f"), NamedBuilder.fromUtilityClass(Functions.class))
+          .and(List.of("namedFunction", "nf"), NamedBuilder.fromUtilityClass(NamedFunctions.class))
+          .and(List.of("problem", "p"), NamedBuilder.fromUtilityClass(Problems.class))
+          .and(List.of("task"), NamedBuilder.fromUtilityClass(Tasks.class))
       );
 
   private PreparedNamedBuilder() {
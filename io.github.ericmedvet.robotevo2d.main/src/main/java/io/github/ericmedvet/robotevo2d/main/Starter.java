@@ -21,10 +21,21 @@ import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import io.github.ericmedvet.jgea.experimenter.Experiment;
 import io.github.ericmedvet.jgea.experimenter.Experimenter;
+import io.github.ericmedvet.jgea.experimenter.Run;
 import io.github.ericmedvet.jnb.core.BuilderException;
 import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.util.Checkpoint;
+import io.github.ericmedvet.robotevo2d.main.util.CostEstimator;
+import io.github.ericmedvet.robotevo2d.main.util.RandomStreams;
+import io.github.ericmedvet.robotevo2d.main.util.RunIndexes;
+import io.github.ericmedvet.robotevo2d.main.util.RunKeyedExecutorService;
+import io.github.ericmedvet.robotevo2d.main.util.WorkStealingExecutorService;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -47,6 +58,25 @@ public class Starter {
     )
     public int nOfThreads = 1;
 
+    @Parameter(
+        names = {"--workStealing", "-w"},
+        description = "Share one work-stealing pool of nOfThreads threads among the fitness evaluations of all the runs."
+    )
+    public boolean workStealing = false;
+
+    @Parameter(
+        names = {"--nOfRuns"},
+        description = "Max number of runs going on at the same time with --workStealing; if not positive, nOfThreads."
+    )
+    public int nOfRuns = 0;
+
+    @Parameter(
+        names = {"--resume", "-r"},
+        description = "Path of the directory with the checkpoints of a previous execution: completed runs are skipped, " +
+            "interrupted ones are done again from their seed."
+    )
+    public String resumeDirPath = "";
+
     @Parameter(
         names = {"--showExpFileHelp", "-d"},
         description = "Show a description of available constructs for the experiment file."
@@ -59,6 +89,18 @@ public class Starter {
     )
     public boolean check = false;
 
+    @Parameter(
+        names = {"--estimate", "-e"},
+        description = "Just estimate the time and memory needed by the experiment, by sampling a few evaluations."
+    )
+    public boolean estimate = false;
+
+    @Parameter(
+        names = {"--nOfEstimateSamples"},
+        description = "Number of evaluations sampled for each pair of mapper and problem when estimating."
+    )
+    public int nOfEstimateSamples = 5;
+
     @Parameter(
         names = {"--help", "-h"},
         description = "Show this help.",
@@ -68,6 +110,43 @@ public class Starter {
 
   }
 
+  private static Experiment resumed(Experiment experiment, String dirPath) {
+    Map<Integer, Checkpoint> checkpoints = Checkpoint.readAll(dirPath).stream()
+        .collect(Collectors.toMap(Checkpoint::run, c -> c));
+    List<Run<?, ?, ?, ?>> runs = new ArrayList<>();
+    for (int i = 0; i < experiment.runs().size(); i++) {
+      Checkpoint checkpoint = checkpoints.get(i);
+      if (checkpoint != null && checkpoint.completed()) {
+        L.info("Skipping run %d, completed at iteration %d".formatted(i, checkpoint.iteration()));
+        continue;
+      }
+      if (checkpoint != null) {
+        // the solvers cannot be given the checkpointed population, hence the run is done again as described
+        L.info("Restarting run %d from its seed, interrupted after iteration %d".formatted(i, checkpoint.iteration()));
+      }
+      Run<?, ?, ?, ?> run = experiment.runs().get(i);
+      // runs keep their index, for the listeners
+      RunIndexes.set(run, i);
+      runs.add(run);
+    }
+    Experiment resumedExperiment = new Experiment(runs, experiment.listeners());
+    RunIndexes.setResumed(resumedExperiment);
+    return resumedExperiment;
+  }
+
+  private static List<Long> runKeys(Experiment experiment) {
+    // runs with the same random generator get the same random streams
+    return experiment.runs().stream()
+        .map(run -> {
+          byte[] serializedRandomGenerator = Checkpoint.serialize(run.randomGenerator());
+          if (serializedRandomGenerator.length == 0) {
+            return (long) RunIndexes.of(experiment, run);
+          }
+          return RandomStreams.key(serializedRandomGenerator);
+        })
+        .toList();
+  }
+
   public static void main(String[] args) {
     //read configuration
     Configuration configuration = new Configuration();
@@ -138,10 +217,63 @@ public class Starter {
         System.exit(-1);
       }
     }
+    //check if just estimate
+    if (configuration.estimate) {
+      try {
+        CostEstimator.Estimate estimate = CostEstimator.estimate(
+            nb,
+            expDescription,
+            configuration.nOfEstimateSamples
+        );
+        System.out.println("Experiment cost estimate");
+        System.out.printf("\t%d runs, %d evaluations%n", estimate.nOfRuns(), estimate.nOfEvaluations());
+        for (int i = 0; i < estimate.pairCosts().size(); i++) {
+          CostEstimator.PairCost pairCost = estimate.pairCosts().get(i);
+          System.out.printf(
+              "\tmapper/problem pair %d: %.3f s per evaluation, %.1f MB per simulated agent, %.3f MB per quality%n",
+              i,
+              pairCost.evaluationSeconds(),
+              pairCost.agentBytes() / 1024d / 1024d,
+              pairCost.qualityBytes() / 1024d / 1024d
+          );
+        }
+        System.out.printf("\t%.2f h of CPU time%n", estimate.cpuSeconds() / 3600d);
+        for (int nOfThreads : List.of(configuration.nOfThreads, estimate.recommendedNOfThreads())) {
+          System.out.printf(
+              "\twith %d threads: %.2f h of wall time, %.0f MB of peak heap%n",
+              nOfThreads,
+              estimate.wallSeconds(nOfThreads) / 3600d,
+              estimate.peakBytes(nOfThreads) / 1024d / 1024d
+          );
+        }
+        System.out.printf("\trecommended number of threads: %d%n", estimate.recommendedNOfThreads());
+        System.exit(0);
+      } catch (BuilderException e) {
+        L.severe("Cannot build experiment: %s%n".formatted(e));
+        System.exit(-1);
+      }
+    }
     //prepare and run experimenter
     try {
-      Experimenter experimenter = new Experimenter(nb, configuration.nOfThreads);
-      experimenter.run(expDescription);
+      Experiment experiment = (Experiment) nb.build(expDescription);
+      if (!configuration.resumeDirPath.isEmpty()) {
+        experiment = resumed(experiment, configuration.resumeDirPath);
+      }
+      List<Long> runKeys = runKeys(experiment);
+      Experimenter experimenter = new Experimenter(
+          nb,
+          new RunKeyedExecutorService(
+              configuration.workStealing ? new WorkStealingExecutorService(
+                  configuration.nOfRuns > 0 ? configuration.nOfRuns : configuration.nOfThreads,
+                  configuration.nOfThreads
+              ) : Executors.newFixedThreadPool(configuration.nOfThreads),
+              runKeys
+          ),
+          // listeners building agents of a run get the random streams of the run
+          new RunKeyedExecutorService(Executors.newSingleThreadExecutor(), List.of()),
+          true
+      );
+      experimenter.run(experiment);
     } catch (BuilderException e) {
       L.severe("Cannot build experiment: %s%n".formatted(e));
       System.exit(-1);
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main;
+
+import io.github.ericmedvet.jgea.core.TotalOrderQualityBasedProblem;
+import io.github.ericmedvet.jgea.experimenter.InvertibleMapper;
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.util.RandomStreams;
+import io.github.ericmedvet.robotevo2d.main.util.WorkerPool;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The process started by a {@link WorkerPool}: it reads evaluation requests from the standard input and writes the
+ * corresponding qualities on the standard output, until the standard input is closed. Problems and mappers are built
+ * once for each description.
+ */
+public class Worker {
+
+  private final static Logger L = Logger.getLogger(Worker.class.getName());
+
+  @SuppressWarnings("unchecked")
+  public static void main(String[] args) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+    // the standard output is reserved to the responses
+    System.setOut(System.err);
+    NamedBuilder<Object> nb = PreparedNamedBuilder.get();
+    Map<String, Object> built = new HashMap<>();
+    while (true) {
+      WorkerPool.Request request;
+      try {
+        request = WorkerPool.readRequest(in);
+      } catch (EOFException e) {
+        break;
+      }
+      byte[] quality;
+      try {
+        TotalOrderQualityBasedProblem<Object, Object> problem =
+            (TotalOrderQualityBasedProblem<Object, Object>) built.computeIfAbsent(
+                request.problemDescription(),
+                nb::build
+            );
+        InvertibleMapper<Object, Object> mapper = (InvertibleMapper<Object, Object>) built.computeIfAbsent(
+            request.mapperDescription(),
+            nb::build
+        );
+        Object genotype = request.genotype();
+        if (mapper.exampleInput() instanceof List<?>) {
+          genotype = Arrays.stream(request.genotype()).boxed().toList();
+        }
+        // the agent gets the same random streams it would get in the process of the run
+        Object solution = mapper.apply(genotype);
+        Object solutionQuality = RandomStreams.withRunKey(
+            request.runKey(),
+            () -> problem.qualityFunction().apply(solution)
+        );
+        // the quality is serialized here, since a non serializable quality is an evaluation error
+        quality = WorkerPool.serialize(solutionQuality);
+      } catch (RuntimeException | IOException e) {
+        L.warning("Cannot evaluate: %s".formatted(e));
+        WorkerPool.writeError(out, e);
+        continue;
+      }
+      WorkerPool.writeQuality(out, quality);
+    }
+  }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.builders;
+
+import io.github.ericmedvet.jnb.core.Param;
+import io.github.ericmedvet.mrsim2d.buildable.builders.TimedRealFunctions;
+import io.github.ericmedvet.mrsim2d.core.functions.MultiLayerPerceptron;
+import io.github.ericmedvet.robotevo2d.main.functions.SharedWeightsMLP;
+
+public class Functions {
+
+  private Functions() {
+  }
+
+  @SuppressWarnings("unused")
+  public static TimedRealFunctions.Builder<SharedWeightsMLP> sharedMlp(
+      @Param(value = "innerLayerRatio", dD = 0.65) double innerLayerRatio,
+      @Param(value = "nOfInnerLayers", dI = 1) int nOfInnerLayers,
+      @Param(value = "activationFunction", dS = "tanh") MultiLayerPerceptron.ActivationFunction activationFunction
+  ) {
+    return (nOfInputs, nOfOutputs) -> new SharedWeightsMLP(
+        activationFunction,
+        nOfInputs,
+        SharedWeightsMLP.innerNeurons(nOfInputs, innerLayerRatio, nOfInnerLayers),
+        nOfOutputs
+    );
+  }
+
+}
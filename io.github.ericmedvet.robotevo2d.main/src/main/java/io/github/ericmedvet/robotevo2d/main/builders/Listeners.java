@@ -1,22 +1,314 @@
 package io.github.ericmedvet.robotevo2d.main.builders;
 
+import io.github.ericmedvet.jgea.core.TotalOrderQualityBasedProblem;
 import io.github.ericmedvet.jgea.core.listener.AccumulatorFactory;
+import io.github.ericmedvet.jgea.core.listener.Listener;
 import io.github.ericmedvet.jgea.core.listener.ListenerFactory;
+import io.github.ericmedvet.jgea.core.solver.Individual;
 import io.github.ericmedvet.jgea.core.solver.state.POSetPopulationState;
 import io.github.ericmedvet.jgea.experimenter.Experiment;
 import io.github.ericmedvet.jgea.experimenter.Run;
 import io.github.ericmedvet.jnb.core.Param;
+import io.github.ericmedvet.robotevo2d.main.util.Checkpoint;
+import io.github.ericmedvet.robotevo2d.main.util.EvaluationMetrics;
+import io.github.ericmedvet.robotevo2d.main.util.GenotypeArchive;
+import io.github.ericmedvet.robotevo2d.main.util.GenotypeCodec;
+import io.github.ericmedvet.robotevo2d.main.util.MeteredProblem;
+import io.github.ericmedvet.robotevo2d.main.util.RunIndexes;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
 
 public class Listeners {
 
+  private final static Logger L = Logger.getLogger(Listeners.class.getName());
+
+  private final static String METRICS_OBJECT_NAME_FORMAT = "io.github.ericmedvet.robotevo2d:type=EvaluationMetrics,run=%d";
+
   private Listeners() {
   }
 
+  @SuppressWarnings("unchecked")
+  private static <Q> Comparator<Q> comparator(Run<?, ?, ?, Q> run) {
+    // individuals are ranked with the problem comparator, when available
+    return run.problem() instanceof TotalOrderQualityBasedProblem<?, ?> problem ?
+        ((TotalOrderQualityBasedProblem<?, Q>) problem).totalOrderComparator() : null;
+  }
+
+  private static <G, S, Q> List<Individual<G, S, Q>> ranked(
+      Collection<Individual<G, S, Q>> individuals,
+      Comparator<Q> comparator
+  ) {
+    List<Individual<G, S, Q>> rankedIndividuals = new ArrayList<>(individuals);
+    if (comparator != null) {
+      rankedIndividuals.sort(Comparator.comparing(Individual::fitness, comparator));
+    }
+    return rankedIndividuals;
+  }
+
+  @SuppressWarnings("unused")
+  public static <G, S, Q> BiFunction<Experiment, ExecutorService, ListenerFactory<POSetPopulationState<G, S, Q>, Run<?, G, S, Q>>> archive(
+          @Param("filePath") String filePath,
+          @Param("fitness") Function<Q, Number> fitnessFunction,
+          @Param(value = "individuals", dNPM = "ea.nf.all()") Function<POSetPopulationState<G, S, Q>,
+              Collection<Individual<G, S, Q>>> individualsFunction,
+          @Param(value = "iteration", dNPM = "ea.nf.iterations()") Function<POSetPopulationState<G, S, Q>, Long> iterationFunction
+  ) {
+    return (experiment, executorService) -> {
+      GenotypeArchive archive = new GenotypeArchive(filePath);
+      return new ListenerFactory<>() {
+        @Override
+        public Listener<POSetPopulationState<G, S, Q>> build(Run<?, G, S, Q> run) {
+          int runIndex = RunIndexes.of(experiment, run);
+          Comparator<Q> comparator = comparator(run);
+          return state -> {
+            // only the individuals in the state are archived: the ones evaluated and discarded in the same
+            // iteration never reach the listener
+            List<Individual<G, S, Q>> individuals = ranked(individualsFunction.apply(state), comparator);
+            double[] fitnesses = new double[individuals.size()];
+            double[][] genotypes = new double[individuals.size()][];
+            for (int i = 0; i < individuals.size(); i++) {
+              fitnesses[i] = fitnessFunction.apply(individuals.get(i).fitness()).doubleValue();
+              genotypes[i] = GenotypeCodec.toArray(individuals.get(i).genotype());
+            }
+            archive.append(runIndex, iterationFunction.apply(state), fitnesses, genotypes);
+          };
+        }
+
+        @Override
+        public void shutdown() {
+          archive.close();
+        }
+      };
+    };
+  }
+
+  @SuppressWarnings("unused")
+  public static <G, S, Q> BiFunction<Experiment, ExecutorService, ListenerFactory<POSetPopulationState<G, S, Q>, Run<?, G, S, Q>>> checkpoint(
+          @Param("dirPath") String dirPath,
+          @Param("fitness") Function<Q, Number> fitnessFunction,
+          @Param(value = "every", dI = 10) int every,
+          @Param(value = "individuals", dNPM = "ea.nf.all()") Function<POSetPopulationState<G, S, Q>,
+              Collection<Individual<G, S, Q>>> individualsFunction,
+          @Param(value = "iteration", dNPM = "ea.nf.iterations()") Function<POSetPopulationState<G, S, Q>, Long> iterationFunction
+  ) {
+    return (experiment, executorService) -> {
+      // checkpoints are encoded and written by one dedicated thread, not by the threads of the runs
+      ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+      });
+      Consumer<Checkpoint> submitter = checkpoint -> writer.submit(() -> {
+        try {
+          checkpoint.write(dirPath);
+          L.fine("Checkpoint of run %d written at iteration %d".formatted(checkpoint.run(), checkpoint.iteration()));
+        } catch (UncheckedIOException e) {
+          L.warning("Cannot write checkpoint: %s".formatted(e));
+        }
+      });
+      return new ListenerFactory<>() {
+        @Override
+        public Listener<POSetPopulationState<G, S, Q>> build(Run<?, G, S, Q> run) {
+          int runIndex = RunIndexes.of(experiment, run);
+          Comparator<Q> comparator = comparator(run);
+          AtomicReference<POSetPopulationState<G, S, Q>> lastState = new AtomicReference<>();
+          return new Listener<>() {
+            private Checkpoint checkpoint(POSetPopulationState<G, S, Q> state, boolean completed) {
+              List<Individual<G, S, Q>> individuals = ranked(individualsFunction.apply(state), comparator);
+              double[] fitnesses = new double[individuals.size()];
+              double[][] genotypes = new double[individuals.size()][];
+              for (int i = 0; i < individuals.size(); i++) {
+                fitnesses[i] = fitnessFunction.apply(individuals.get(i).fitness()).doubleValue();
+                genotypes[i] = GenotypeCodec.toArray(individuals.get(i).genotype());
+              }
+              return new Checkpoint(
+                  runIndex,
+                  iterationFunction.apply(state),
+                  completed,
+                  Checkpoint.serialize(run.randomGenerator()),
+                  fitnesses,
+                  genotypes
+              );
+            }
+
+            @Override
+            public void listen(POSetPopulationState<G, S, Q> state) {
+              // the checkpoint is built only when written; the state is kept for the final checkpoint
+              lastState.set(state);
+              if (iterationFunction.apply(state) % every == 0) {
+                submitter.accept(checkpoint(state, false));
+              }
+            }
+
+            @Override
+            public void done() {
+              POSetPopulationState<G, S, Q> state = lastState.get();
+              if (state != null) {
+                submitter.accept(checkpoint(state, true));
+              }
+            }
+          };
+        }
+
+        @Override
+        public void shutdown() {
+          writer.shutdown();
+          try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+              L.warning("Some checkpoints have not been written");
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+    };
+  }
+
+  private static long[] gcCountAndMillis() {
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count = count + Math.max(0, bean.getCollectionCount());
+      millis = millis + Math.max(0, bean.getCollectionTime());
+    }
+    return new long[]{count, millis};
+  }
+
+  private static String percentilesToString(EvaluationMetrics.Percentiles percentiles) {
+    return "%.3f;%.3f;%.3f".formatted(percentiles.p50(), percentiles.p95(), percentiles.p99());
+  }
+
+  @SuppressWarnings("unused")
+  public static <G, S, Q> BiFunction<Experiment, ExecutorService, ListenerFactory<POSetPopulationState<G, S, Q>, Run<?, G, S, Q>>> metrics(
+          @Param("filePath") String filePath,
+          @Param("listeners") List<BiFunction<Experiment, ExecutorService, ListenerFactory<? super POSetPopulationState<G, S, Q>, Run<?, G, S, Q>>>> listenerBuilders,
+          @Param(value = "iteration", dNPM = "ea.nf.iterations()") Function<POSetPopulationState<G, S, Q>, Long> iterationFunction
+  ) {
+    return (experiment, executorService) -> {
+      List<ListenerFactory<? super POSetPopulationState<G, S, Q>, Run<?, G, S, Q>>> factories = listenerBuilders.stream()
+          .map(b -> b.apply(experiment, executorService))
+          .toList();
+      PrintStream ps;
+      // when resuming, lines are appended to the ones of the previous execution
+      File file = new File(filePath);
+      boolean append = RunIndexes.isResumed(experiment) && file.length() > 0;
+      try {
+        ps = new PrintStream(new FileOutputStream(file, append));
+      } catch (FileNotFoundException e) {
+        throw new IllegalArgumentException("Cannot open metrics file %s: %s".formatted(filePath, e), e);
+      }
+      if (!append) {
+        ps.println(String.join(";", List.of(
+            "run", "iteration", "evaluations",
+            "build.ms.p50", "build.ms.p95", "build.ms.p99",
+            "simulation.ms.p50", "simulation.ms.p95", "simulation.ms.p99",
+            "allocated.mb.p50", "allocated.mb.p95", "allocated.mb.p99",
+            "listeners.ms.p50", "listeners.ms.p95", "listeners.ms.p99",
+            "gc.count", "gc.ms"
+        )));
+      }
+      return new ListenerFactory<>() {
+        @Override
+        public Listener<POSetPopulationState<G, S, Q>> build(Run<?, G, S, Q> run) {
+          int runIndex = RunIndexes.of(experiment, run);
+          List<? extends Listener<? super POSetPopulationState<G, S, Q>>> listeners = factories.stream()
+              .map(f -> f.build(run))
+              .toList();
+          EvaluationMetrics metrics;
+          if (run.problem() instanceof MeteredProblem<?, ?> meteredProblem) {
+            metrics = meteredProblem.metrics();
+          } else {
+            L.warning("Evaluations of run %d are not metered, since its problem is not an er.p.metered()".formatted(
+                runIndex));
+            metrics = new EvaluationMetrics(1000);
+          }
+          ObjectName objectName = null;
+          try {
+            objectName = new ObjectName(METRICS_OBJECT_NAME_FORMAT.formatted(runIndex));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+          } catch (JMException e) {
+            L.warning("Cannot expose metrics of run %d over JMX: %s".formatted(runIndex, e));
+            objectName = null;
+          }
+          ObjectName registeredObjectName = objectName;
+          long[] lastGc = gcCountAndMillis();
+          return new Listener<>() {
+            @Override
+            public void listen(POSetPopulationState<G, S, Q> state) {
+              // listeners are timed on this thread: for deferred ones, this is the time for handing the state over
+              for (Listener<? super POSetPopulationState<G, S, Q>> listener : listeners) {
+                long startNanos = System.nanoTime();
+                listener.listen(state);
+                metrics.recordListeners(System.nanoTime() - startNanos);
+              }
+              EvaluationMetrics.Summary summary = metrics.summarize();
+              // gc figures are for the whole process, hence shared among concurrent runs
+              long[] gc = gcCountAndMillis();
+              String line = "%d;%d;%d;%s;%s;%s;%s;%d;%d".formatted(
+                  runIndex,
+                  iterationFunction.apply(state),
+                  summary.nOfEvaluations(),
+                  percentilesToString(summary.buildMillis()),
+                  percentilesToString(summary.simulationMillis()),
+                  percentilesToString(summary.allocatedMB()),
+                  percentilesToString(summary.listenersMillis()),
+                  gc[0] - lastGc[0],
+                  gc[1] - lastGc[1]
+              );
+              lastGc[0] = gc[0];
+              lastGc[1] = gc[1];
+              synchronized (ps) {
+                ps.println(line);
+                ps.flush();
+              }
+            }
+
+            @Override
+            public void done() {
+              listeners.forEach(Listener::done);
+              if (registeredObjectName != null) {
+                try {
+                  ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredObjectName);
+                } catch (JMException e) {
+                  L.warning("Cannot remove metrics of run %d from JMX: %s".formatted(runIndex, e));
+                }
+              }
+            }
+          };
+        }
+
+        @Override
+        public void shutdown() {
+          factories.forEach(ListenerFactory::shutdown);
+          synchronized (ps) {
+            ps.close();
+          }
+        }
+      };
+    };
+  }
+
   @SuppressWarnings("unused")
   public static <A> BiFunction<Experiment, ExecutorService, ListenerFactory<POSetPopulationState<?, A, ?>, Run<?, ?, A, ?>>> videoSaver(
           @Param("videos") List<AccumulatorFactory<POSetPopulationState<?, A, ?>, File, Run<?, ?, A, ?>>> accumulators
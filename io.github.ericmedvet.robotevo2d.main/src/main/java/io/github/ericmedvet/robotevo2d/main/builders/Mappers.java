@@ -18,14 +18,15 @@ package io.github.ericmedvet.robotevo2d.main.builders;
 
 import io.github.ericmedvet.jgea.experimenter.InvertibleMapper;
 import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.jnb.core.NamedParamMap;
 import io.github.ericmedvet.jnb.core.Param;
 import io.github.ericmedvet.jnb.core.ParamMap;
 import io.github.ericmedvet.mrsim2d.core.NumMultiBrained;
 import io.github.ericmedvet.mrsim2d.core.functions.TimedRealFunction;
 import io.github.ericmedvet.mrsim2d.core.util.Parametrized;
+import io.github.ericmedvet.robotevo2d.main.util.MappedSupplier;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -33,87 +34,115 @@ public class Mappers {
   private Mappers() {
   }
 
+  private static double[] toArray(List<Double> values) {
+    double[] array = new double[values.size()];
+    int i = 0;
+    for (Double value : values) {
+      array[i] = value;
+      i = i + 1;
+    }
+    return array;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Supplier<T> targetFactory(NamedParamMap targetNPM, NamedBuilder<?> builder) {
+    // each agent is built again from the npm, through the named builder: agents are stateful, mrsim2d offers no way of
+    // copying them, and jnb does not expose the resolved constructor chain, hence there is no prototype to stamp from
+    return () -> (T) builder.build(targetNPM);
+  }
+
+  private static void checkSize(double[] values, int expectedSize) {
+    if (values.length != expectedSize) {
+      throw new IllegalArgumentException("Wrong number of params: %d expected, %d found".formatted(
+          expectedSize,
+          values.length
+      ));
+    }
+  }
+
+  private static void checkParametrizedBrains(NumMultiBrained target) {
+    if (!target.brains().stream().allMatch(b -> b instanceof Parametrized)) {
+      throw new IllegalArgumentException("Some of the %d brains are not parametrized".formatted(target.brains()
+          .size()));
+    }
+  }
+
   @SuppressWarnings("unused")
-  public static <T extends Parametrized> InvertibleMapper<List<Double>, Supplier<T>> parametrized(
+  public static <T extends Parametrized> InvertibleMapper<double[], Supplier<T>> arrayParametrized(
       @Param("target") T target,
       @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
       @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
   ) {
+    // the target and mapper npms are resolved once
+    NamedParamMap targetNPM = map.npm("target");
+    NamedParamMap mapperNPM = (NamedParamMap) map;
+    Supplier<T> targetFactory = targetFactory(targetNPM, builder);
+    int size = target.getParams().length;
     return new InvertibleMapper<>() {
       @Override
-      public Supplier<T> apply(List<Double> values) {
-        if (values.size() != target.getParams().length) {
-          throw new IllegalArgumentException("Wrong number of params: %d expected, %d found".formatted(
-              target.getParams().length,
-              values.size()
-          ));
-        }
-        return () -> {
-          @SuppressWarnings("unchecked") T t = (T) builder.build(map.npm("target"));
-          t.setParams(values.stream().mapToDouble(d -> d).toArray());
+      public Supplier<T> apply(double[] values) {
+        checkSize(values, size);
+        // the genotype is handed over to the supplier; each agent gets one copy of it, that it may keep
+        return new MappedSupplier<>(values, mapperNPM, targetNPM, () -> {
+          T t = targetFactory.get();
+          t.setParams(values.clone());
           return t;
-        };
+        });
       }
 
       @Override
-      public List<Double> exampleInput() {
-        return Arrays.stream(target.getParams()).boxed().toList();
+      public double[] exampleInput() {
+        return target.getParams();
       }
     };
   }
 
   @SuppressWarnings("unused")
-  public static <T extends NumMultiBrained> InvertibleMapper<List<Double>, Supplier<T>> parametrizedHeteroBrains(
+  public static <T extends NumMultiBrained> InvertibleMapper<double[], Supplier<T>> arrayParametrizedHeteroBrains(
       @Param("target") T target,
       @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
       @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
   ) {
-    if (!target.brains().stream().allMatch(b -> b instanceof Parametrized)) {
-      throw new IllegalArgumentException("Some of the %d brains are not parametrized".formatted(target.brains()
-          .size()));
+    checkParametrizedBrains(target);
+    // offsets are computed once on the target, that has the same brains of every agent built from its npm
+    int[] brainOffsets = new int[target.brains().size() + 1];
+    for (int i = 0; i < target.brains().size(); i++) {
+      brainOffsets[i + 1] = brainOffsets[i] + ((Parametrized) target.brains().get(i)).getParams().length;
     }
-    List<Integer> brainSizes = target.brains().stream()
-        .map(b -> ((Parametrized) b).getParams().length)
-        .toList();
-    int overallBrainSize = brainSizes.stream().mapToInt(i -> i).sum();
+    int overallBrainSize = brainOffsets[brainOffsets.length - 1];
+    // the target and mapper npms are resolved once
+    NamedParamMap targetNPM = map.npm("target");
+    NamedParamMap mapperNPM = (NamedParamMap) map;
+    Supplier<T> targetFactory = targetFactory(targetNPM, builder);
     return new InvertibleMapper<>() {
       @Override
-      public Supplier<T> apply(List<Double> values) {
-        if (values.size() != overallBrainSize) {
-          throw new IllegalArgumentException("Wrong number of params: %d expected, %d found".formatted(
-              overallBrainSize,
-              values.size()
-          ));
-        }
-        return () -> {
-          @SuppressWarnings("unchecked") T t = (T) builder.build(map.npm("target"));
-          int c = 0;
-          for (TimedRealFunction brain : t.brains()) {
-            int brainSize = ((Parametrized) brain).getParams().length;
-            ((Parametrized) brain).setParams(values.subList(c, c + brainSize).stream().mapToDouble(d -> d).toArray());
-            c = c + brainSize;
+      public Supplier<T> apply(double[] values) {
+        checkSize(values, overallBrainSize);
+        // the genotype is handed over to the supplier; each agent gets one copy of it, in slices, that it may keep
+        return new MappedSupplier<>(values, mapperNPM, targetNPM, () -> {
+          T t = targetFactory.get();
+          List<TimedRealFunction> brains = t.brains();
+          for (int i = 0; i < brains.size(); i++) {
+            ((Parametrized) brains.get(i)).setParams(Arrays.copyOfRange(values, brainOffsets[i], brainOffsets[i + 1]));
           }
           return t;
-        };
+        });
       }
 
       @Override
-      public List<Double> exampleInput() {
-        return Collections.nCopies(overallBrainSize, 0d);
+      public double[] exampleInput() {
+        return new double[overallBrainSize];
       }
     };
   }
 
   @SuppressWarnings("unused")
-  public static <T extends NumMultiBrained> InvertibleMapper<List<Double>, Supplier<T>> parametrizedHomoBrains(
+  public static <T extends NumMultiBrained> InvertibleMapper<double[], Supplier<T>> arrayParametrizedHomoBrains(
       @Param("target") T target,
       @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
       @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
   ) {
-    if (!target.brains().stream().allMatch(b -> b instanceof Parametrized)) {
-      throw new IllegalArgumentException("Some of the %d brains are not parametrized".formatted(target.brains()
-          .size()));
-    }
+    checkParametrizedBrains(target);
     List<Integer> brainSizes = target.brains().stream()
         .map(b -> ((Parametrized) b).getParams().length)
         .distinct()
@@ -123,27 +152,75 @@ public class Mappers {
           .size(), brainSizes));
     }
     int brainSize = brainSizes.get(0);
+    // the target and mapper npms are resolved once
+    NamedParamMap targetNPM = map.npm("target");
+    NamedParamMap mapperNPM = (NamedParamMap) map;
+    Supplier<T> targetFactory = targetFactory(targetNPM, builder);
     return new InvertibleMapper<>() {
       @Override
-      public Supplier<T> apply(List<Double> values) {
-        if (values.size() != brainSize) {
-          throw new IllegalArgumentException("Wrong number of params: %d expected, %d found".formatted(
-              brainSize,
-              values.size()
-          ));
-        }
-        return () -> {
-          @SuppressWarnings("unchecked") T t = (T) builder.build(map.npm("target"));
-          t.brains().forEach(b -> ((Parametrized) b).setParams(values.stream().mapToDouble(d -> d).toArray()));
+      public Supplier<T> apply(double[] values) {
+        checkSize(values, brainSize);
+        // the genotype is handed over to the supplier; each agent gets one copy of it, that it may keep and that is
+        // shared by all its brains (brains keeping it by reference, e.g., SharedWeightsMLP, do not copy it again)
+        return new MappedSupplier<>(values, mapperNPM, targetNPM, () -> {
+          T t = targetFactory.get();
+          double[] params = values.clone();
+          t.brains().forEach(b -> ((Parametrized) b).setParams(params));
           return t;
-        };
+        });
+      }
+
+      @Override
+      public double[] exampleInput() {
+        return new double[brainSize];
+      }
+    };
+  }
+
+
+  @SuppressWarnings("unused")
+  public static <S> InvertibleMapper<List<Double>, S> fromList(
+      @Param("mapper") InvertibleMapper<double[], S> mapper
+  ) {
+    return new InvertibleMapper<>() {
+      @Override
+      public S apply(List<Double> values) {
+        // the unboxed array is fresh, hence it is handed over to the mapper without further copies
+        return mapper.apply(toArray(values));
       }
 
       @Override
       public List<Double> exampleInput() {
-        return Collections.nCopies(brainSize, 0d);
+        return Arrays.stream(mapper.exampleInput()).boxed().toList();
       }
     };
   }
 
+  @SuppressWarnings("unused")
+  public static <T extends Parametrized> InvertibleMapper<List<Double>, Supplier<T>> parametrized(
+      @Param("target") T target,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
+      @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
+  ) {
+    return fromList(arrayParametrized(target, map, builder));
+  }
+
+  @SuppressWarnings("unused")
+  public static <T extends NumMultiBrained> InvertibleMapper<List<Double>, Supplier<T>> parametrizedHeteroBrains(
+      @Param("target") T target,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
+      @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
+  ) {
+    return fromList(arrayParametrizedHeteroBrains(target, map, builder));
+  }
+
+  @SuppressWarnings("unused")
+  public static <T extends NumMultiBrained> InvertibleMapper<List<Double>, Supplier<T>> parametrizedHomoBrains(
+      @Param("target") T target,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map,
+      @Param(value = "", injection = Param.Injection.BUILDER) NamedBuilder<?> builder
+  ) {
+    return fromList(arrayParametrizedHomoBrains(target, map, builder));
+  }
+
 }
@@ -24,19 +24,32 @@ import io.github.ericmedvet.jgea.core.solver.state.POSetPopulationState;
 import io.github.ericmedvet.jgea.experimenter.Run;
 import io.github.ericmedvet.jnb.core.Param;
 import io.github.ericmedvet.jnb.core.ParamMap;
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
 import io.github.ericmedvet.mrsim2d.core.engine.Engine;
 import io.github.ericmedvet.mrsim2d.core.tasks.Task;
 import io.github.ericmedvet.mrsim2d.core.util.DoubleRange;
 import io.github.ericmedvet.mrsim2d.viewer.Drawer;
 import io.github.ericmedvet.mrsim2d.viewer.VideoBuilder;
 import io.github.ericmedvet.mrsim2d.viewer.VideoUtils;
+import io.github.ericmedvet.robotevo2d.main.util.GenotypeArchive;
+import io.github.ericmedvet.robotevo2d.main.util.GenotypeCodec;
+import io.github.ericmedvet.robotevo2d.main.util.MappedSupplier;
+import io.github.ericmedvet.robotevo2d.main.util.PipelinedVideoBuilder;
+import io.github.ericmedvet.robotevo2d.main.util.RandomStreams;
+import io.github.ericmedvet.robotevo2d.main.util.SnapshotRecorder;
+import io.github.ericmedvet.robotevo2d.main.util.VideoCache;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -53,12 +66,50 @@ public class Misc {
   private Misc() {
   }
 
-  @SuppressWarnings("unused")
-  public static Function<List<Double>, List<Double>> doublesRandomizer(
+  private static Function<Object, Object> fromValues(double[] values) {
+    // the genotype is given in the same form (array or list) of the example genotype
+    return o -> o instanceof double[] ? values.clone() : Arrays.stream(values).boxed().toList();
+  }
+
+  @SuppressWarnings({"unused", "unchecked"})
+  public static <G> Function<G, G> doublesRandomizer(
       @Param(value = "randomGenerator", dNPM = "sim.defaultRG()") RandomGenerator randomGenerator,
-      @Param(value = "range", dNPM = "sim.range(max=1.0;min=-1.0)") DoubleRange range
+      @Param(value = "range", dNPM = "sim.range(max=1.0;min=-1.0)") DoubleRange range,
+      @Param(value = "seed", dI = -1) int seed
+  ) {
+    // with a seed, the stream depends only on the seed, the run, and the example genotype, not on the order of calls
+    return g -> {
+      if (g instanceof double[] values) {
+        RandomGenerator rg = seed >= 0 ? RandomStreams.stream(
+            seed,
+            RandomStreams.runKey(),
+            RandomStreams.key(values),
+            0
+        ) : randomGenerator;
+        for (int i = 0; i < values.length; i++) {
+          values[i] = range.denormalize(rg.nextDouble());
+        }
+        return g;
+      }
+      List<?> list = (List<?>) g;
+      RandomGenerator rg = seed >= 0 ? RandomStreams.stream(
+          seed,
+          RandomStreams.runKey(),
+          RandomStreams.key(list.stream().mapToDouble(v -> ((Number) v).doubleValue()).toArray()),
+          0
+      ) : randomGenerator;
+      return (G) list.stream().map(v -> range.denormalize(rg.nextDouble())).toList();
+    };
+  }
+
+  @SuppressWarnings("unused")
+  public static Function<Object, Object> fromArchive(
+      @Param("filePath") String filePath,
+      @Param(value = "run", dI = 0) int run,
+      @Param(value = "iteration", dI = -1) int iteration,
+      @Param(value = "rank", dI = 0) int rank
   ) {
-    return values -> values.stream().map(v -> range.denormalize(randomGenerator.nextDouble())).toList();
+    return fromValues(GenotypeArchive.read(filePath, run, iteration, rank).genotype());
   }
 
   @SuppressWarnings("unused")
@@ -76,6 +127,37 @@ public class Misc {
     };
   }
 
+  @SuppressWarnings("unused")
+  public static Function<Object, Object> fromBinary(
+      @Param("s") String s
+  ) {
+    return fromValues(GenotypeCodec.decode(Base64.getDecoder().decode(s)));
+  }
+
+  @SuppressWarnings("unused")
+  public static Function<Object, Object> fromFile(
+      @Param("filePath") String filePath
+  ) {
+    byte[] bytes;
+    try {
+      bytes = Files.readAllBytes(Path.of(filePath));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read genotype file %s".formatted(filePath), e);
+    }
+    if (GenotypeCodec.isEncoded(bytes)) {
+      return fromValues(GenotypeCodec.decode(bytes));
+    }
+    // the file may contain the Base64 encoding, as copied from a CSV file, that never starts with a valid flags byte
+    return fromValues(GenotypeCodec.decode(Base64.getDecoder().decode(new String(bytes).trim())));
+  }
+
+  @SuppressWarnings("unused")
+  public static RandomGenerator splitRG(
+      @Param(value = "seed", dI = 0) int seed
+  ) {
+    return RandomStreams.next(seed);
+  }
+
   @SuppressWarnings("unused")
   public static <A> AccumulatorFactory<POSetPopulationState<?, A, ?>, File, Run<?, ?, A, ?>> video(
       @Param("dirPath") String dirPath,
@@ -91,8 +173,14 @@ public class Misc {
       @Param(value = "engine", dNPM = "sim.engine()") Supplier<Engine> engineSupplier,
       @Param(value = "individual", dNPM = "ea.nf.best()") Function<POSetPopulationState<?, A, ?>,
           Individual<?, A, ?>> individualFunction,
+      @Param(value = "cacheDirPath", dS = "") String cacheDirPath,
+      @Param(value = "cacheSize", dI = 1024) int cacheSize,
       @Param(value = "", injection = Param.Injection.MAP) ParamMap map
   ) {
+    VideoCache videoCache = cacheDirPath == null || cacheDirPath.isEmpty() ? null : new VideoCache(
+        cacheDirPath,
+        cacheSize * 1024L * 1024L
+    );
     return run -> Accumulator.<POSetPopulationState<?, A, ?>>last().then(state -> {
       //extract individual
       A a = individualFunction.apply(state).solution();
@@ -110,6 +198,23 @@ public class Misc {
         }
         //do video
         String videoName = map.npm("task").toString();
+        String cacheKey = null;
+        if (videoCache != null && a instanceof MappedSupplier<?> mappedSupplier) {
+          cacheKey = VideoCache.key(mappedSupplier.genotype(), List.of(
+              mappedSupplier.mapperNPM().toString(),
+              videoName,
+              String.valueOf(map.npm("drawer")),
+              "%dx%d %.3f [%.3f,%.3f] %s".formatted(w, h, frameRate, startTime, endTime, codec)
+          ));
+          Optional<File> cachedFile = videoCache.get(cacheKey, file);
+          if (cachedFile.isPresent()) {
+            L.info("Video for %s taken from cache on file %s".formatted(
+                videoName,
+                tempFile ? "temp" : file.getAbsolutePath()
+            ));
+            return cachedFile.get();
+          }
+        }
         VideoBuilder videoBuilder = new VideoBuilder(
             w,
             h,
@@ -121,9 +226,21 @@ public class Misc {
             drawer.apply(videoName)
         );
         L.info("Doing video for %s on file %s".formatted(videoName, tempFile ? "temp" : file.getAbsolutePath()));
-        task.run(a, engineSupplier.get(), videoBuilder);
-        file = videoBuilder.get();
+        Optional<List<Snapshot>> trace = SnapshotRecorder.trace(a, videoName);
+        if (trace.isPresent()) {
+          L.fine("Replaying %d recorded snapshots for %s".formatted(trace.get().size(), videoName));
+          trace.get().forEach(videoBuilder);
+          file = videoBuilder.get();
+        } else {
+          try (PipelinedVideoBuilder pipelinedVideoBuilder = new PipelinedVideoBuilder(videoBuilder)) {
+            task.run(a, engineSupplier.get(), pipelinedVideoBuilder);
+            file = pipelinedVideoBuilder.get();
+          }
+        }
         L.info("Video done for %s on file %s".formatted(videoName, tempFile ? "temp" : file.getAbsolutePath()));
+        if (cacheKey != null && file != null) {
+          videoCache.put(cacheKey, file);
+        }
         return file;
       } catch (IOException ex) {
         L.warning("Cannot make video: %s".formatted(ex));
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.builders;
+
+import io.github.ericmedvet.jgea.core.listener.NamedFunction;
+import io.github.ericmedvet.jnb.core.Param;
+import io.github.ericmedvet.robotevo2d.main.util.GenotypeCodec;
+
+import java.util.Base64;
+
+public class NamedFunctions {
+
+  private NamedFunctions() {
+  }
+
+  @SuppressWarnings("unused")
+  public static <X> NamedFunction<X, String> binary(
+      @Param("f") NamedFunction<X, Object> f,
+      @Param(value = "compressed", dB = true) boolean compressed,
+      @Param(value = "format", dS = "%s") String format
+  ) {
+    return NamedFunction.build(
+        "%s→binary".formatted(f.getName()),
+        format,
+        x -> Base64.getEncoder().encodeToString(GenotypeCodec.encode(GenotypeCodec.toArray(f.apply(x)), compressed))
+    );
+  }
+
+}
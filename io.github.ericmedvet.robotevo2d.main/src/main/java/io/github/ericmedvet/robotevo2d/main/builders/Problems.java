@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.builders;
+
+import io.github.ericmedvet.jgea.core.TotalOrderQualityBasedProblem;
+import io.github.ericmedvet.jnb.core.Param;
+import io.github.ericmedvet.jnb.core.ParamMap;
+import io.github.ericmedvet.robotevo2d.main.util.EvaluationMetrics;
+import io.github.ericmedvet.robotevo2d.main.util.KnnSurrogate;
+import io.github.ericmedvet.robotevo2d.main.util.MappedSupplier;
+import io.github.ericmedvet.robotevo2d.main.util.MeteredProblem;
+import io.github.ericmedvet.robotevo2d.main.util.QualityCache;
+import io.github.ericmedvet.robotevo2d.main.util.RandomStreams;
+import io.github.ericmedvet.robotevo2d.main.util.WorkerPool;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+public class Problems {
+
+  private final static Logger L = Logger.getLogger(Problems.class.getName());
+
+  private final static int LOG_INTERVAL = 1000;
+  private final static List<Pattern> NON_DETERMINISTIC_BUILDER_PATTERNS = List.of(
+      Pattern.compile("\\bnoised\\s*\\("),
+      Pattern.compile("\\bfallPiling\\s*\\(")
+  );
+
+  private Problems() {
+  }
+
+  private static boolean isDeterministic(String description) {
+    return NON_DETERMINISTIC_BUILDER_PATTERNS.stream().noneMatch(p -> p.matcher(description).find());
+  }
+
+  private static <S, Q> TotalOrderQualityBasedProblem<S, Q> withQualityFunction(
+      TotalOrderQualityBasedProblem<S, Q> problem,
+      Function<S, Q> qualityFunction
+  ) {
+    return new TotalOrderQualityBasedProblem<>() {
+      @Override
+      public Comparator<Q> totalOrderComparator() {
+        return problem.totalOrderComparator();
+      }
+
+      @Override
+      public Function<S, Q> qualityFunction() {
+        return qualityFunction;
+      }
+    };
+  }
+
+  @SuppressWarnings("unused")
+  public static <S, Q> TotalOrderQualityBasedProblem<S, Q> cached(
+      @Param("problem") TotalOrderQualityBasedProblem<S, Q> problem,
+      @Param(value = "size", dI = 1000) int size,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map
+  ) {
+    String problemDescription = map.npm("problem").toString();
+    if (!isDeterministic(problemDescription)) {
+      L.warning("Not caching qualities, since the problem is not deterministic: %s".formatted(problemDescription));
+      return problem;
+    }
+    QualityCache<Q> cache = new QualityCache<>(size);
+    Function<S, Q> qualityFunction = problem.qualityFunction();
+    AtomicBoolean warned = new AtomicBoolean(false);
+    return withQualityFunction(problem, s -> {
+      if (s instanceof MappedSupplier<?> mappedSupplier) {
+        String targetDescription = mappedSupplier.targetNPM().toString();
+        if (isDeterministic(targetDescription)) {
+          Q q = cache.get(mappedSupplier.genotype(), targetDescription, () -> qualityFunction.apply(s));
+          if ((cache.hits() + cache.misses()) % LOG_INTERVAL == 0) {
+            L.info("Quality cache: %s".formatted(cache));
+          }
+          return q;
+        }
+        if (!warned.getAndSet(true)) {
+          L.warning("Not caching qualities, since the agent is not deterministic: %s".formatted(targetDescription));
+        }
+      } else if (!warned.getAndSet(true)) {
+        L.warning("Not caching qualities, since solutions do not come from a parametrized mapper");
+      }
+      return qualityFunction.apply(s);
+    });
+  }
+
+  @SuppressWarnings({"unused", "unchecked"})
+  public static <S, Q> TotalOrderQualityBasedProblem<S, Q> distributed(
+      @Param("problem") TotalOrderQualityBasedProblem<S, Q> problem,
+      @Param(value = "nOfWorkers", dI = 4) int nOfWorkers,
+      @Param(value = "jvmOptions", dS = "") String jvmOptions,
+      @Param(value = "timeout", dD = 0) double timeout,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map
+  ) {
+    String problemDescription = map.npm("problem").toString();
+    WorkerPool pool = WorkerPool.shared(
+        nOfWorkers,
+        jvmOptions == null ? List.of() : Arrays.stream(jvmOptions.split("\\s+")).filter(o -> !o.isEmpty()).toList(),
+        timeout
+    );
+    Function<S, Q> qualityFunction = problem.qualityFunction();
+    AtomicBoolean warned = new AtomicBoolean(false);
+    // whether qualities survive the transfer from the workers is checked once, on a quality computed in this process
+    AtomicReference<Boolean> transferable = new AtomicReference<>();
+    return withQualityFunction(problem, s -> {
+      if (s instanceof MappedSupplier<?> && transferable.get() == null) {
+        Q q = qualityFunction.apply(s);
+        try {
+          WorkerPool.roundTrip(q);
+          if (transferable.compareAndSet(null, true)) {
+            L.info("Qualities of type %s can be transferred from workers".formatted(q.getClass().getName()));
+          }
+        } catch (IOException e) {
+          if (transferable.compareAndSet(null, false)) {
+            L.severe("Evaluating in this process, since qualities of type %s cannot be transferred: %s".formatted(
+                q.getClass().getName(),
+                e
+            ));
+          }
+        }
+        return q;
+      }
+      if (s instanceof MappedSupplier<?> mappedSupplier && transferable.get()) {
+        return (Q) pool.evaluate(new WorkerPool.Request(
+            problemDescription,
+            mappedSupplier.mapperNPM().toString(),
+            RandomStreams.runKey(),
+            mappedSupplier.genotype()
+        ));
+      }
+      if (!warned.getAndSet(true)) {
+        L.warning("Evaluating in this process, since solutions do not come from a parametrized mapper");
+      }
+      return qualityFunction.apply(s);
+    });
+  }
+
+  @SuppressWarnings("unused")
+  public static <S, Q> TotalOrderQualityBasedProblem<S, Q> metered(
+      @Param("problem") TotalOrderQualityBasedProblem<S, Q> problem,
+      @Param(value = "windowSize", dI = 1000) int windowSize
+  ) {
+    return new MeteredProblem<>(problem, new EvaluationMetrics(windowSize));
+  }
+
+  @SuppressWarnings("unused")
+  public static <S, Q> TotalOrderQualityBasedProblem<S, Q> successiveHalving(
+      @Param("problem") TotalOrderQualityBasedProblem<S, Q> problem,
+      @Param("qFunctions") List<Function<S, Q>> qFunctions,
+      @Param(value = "rate", dD = 0.5) double rate,
+      @Param(value = "historySize", dI = 50) int historySize,
+      @Param(value = "minHistorySize", dI = 10) int minHistorySize
+  ) {
+    // fidelities are the given quality functions, in order, and, last, the one of the problem
+    List<Function<S, Q>> fidelityQFunctions = new ArrayList<>(qFunctions);
+    fidelityQFunctions.add(problem.qualityFunction());
+    List<Deque<Q>> histories = fidelityQFunctions.stream().map(f -> (Deque<Q>) new ArrayDeque<Q>()).toList();
+    Comparator<Q> comparator = problem.totalOrderComparator();
+    return withQualityFunction(problem, s -> {
+      Q q = null;
+      for (int i = 0; i < fidelityQFunctions.size(); i++) {
+        q = fidelityQFunctions.get(i).apply(s);
+        if (i == fidelityQFunctions.size() - 1) {
+          break;
+        }
+        // promote to the next fidelity only if among the best rate of the recent qualities at this fidelity
+        Deque<Q> history = histories.get(i);
+        boolean promoted;
+        synchronized (history) {
+          Q currentQ = q;
+          long nOfBetter = history.stream().filter(otherQ -> comparator.compare(otherQ, currentQ) < 0).count();
+          promoted = history.size() < minHistorySize || nOfBetter < rate * history.size();
+          history.addLast(q);
+          if (history.size() > historySize) {
+            history.removeFirst();
+          }
+        }
+        if (!promoted) {
+          break;
+        }
+      }
+      return q;
+    });
+  }
+
+  @SuppressWarnings("unused")
+  public static <S, Q> TotalOrderQualityBasedProblem<S, Q> surrogateAssisted(
+      @Param("problem") TotalOrderQualityBasedProblem<S, Q> problem,
+      @Param(value = "k", dI = 5) int k,
+      @Param(value = "rate", dD = 0.5) double rate,
+      @Param(value = "randomRate", dD = 0.1) double randomRate,
+      @Param(value = "archiveSize", dI = 1000) int archiveSize,
+      @Param(value = "minArchiveSize", dI = 50) int minArchiveSize
+  ) {
+    KnnSurrogate<Q> surrogate = new KnnSurrogate<>(
+        k,
+        archiveSize,
+        minArchiveSize,
+        rate,
+        randomRate,
+        problem.totalOrderComparator()
+    );
+    Function<S, Q> qualityFunction = problem.qualityFunction();
+    AtomicBoolean warned = new AtomicBoolean(false);
+    return withQualityFunction(problem, s -> {
+      if (s instanceof MappedSupplier<?> mappedSupplier) {
+        Q q = surrogate.get(mappedSupplier.genotype(), () -> qualityFunction.apply(s));
+        if ((surrogate.nOfComputed() + surrogate.nOfPredicted()) % LOG_INTERVAL == 0) {
+          L.info("Surrogate: %s".formatted(surrogate));
+        }
+        return q;
+      }
+      if (!warned.getAndSet(true)) {
+        L.warning("Not using the surrogate, since solutions do not come from a parametrized mapper");
+      }
+      return qualityFunction.apply(s);
+    });
+  }
+
+}
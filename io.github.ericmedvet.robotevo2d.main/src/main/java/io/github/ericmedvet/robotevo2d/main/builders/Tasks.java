@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.builders;
+
+import io.github.ericmedvet.jnb.core.Param;
+import io.github.ericmedvet.jnb.core.ParamMap;
+import io.github.ericmedvet.mrsim2d.core.EmbodiedAgent;
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
+import io.github.ericmedvet.mrsim2d.core.geometry.BoundingBox;
+import io.github.ericmedvet.mrsim2d.core.tasks.Task;
+import io.github.ericmedvet.robotevo2d.main.util.EarlyStoppingEngine;
+import io.github.ericmedvet.robotevo2d.main.util.SnapshotRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class Tasks {
+
+  private Tasks() {
+  }
+
+  @SuppressWarnings("unused")
+  public static <A extends EmbodiedAgent, O> Task<Supplier<A>, O> earlyStopped(
+      @Param("task") Task<Supplier<A>, O> task,
+      @Param(value = "checkInterval", dD = 1) double checkInterval,
+      @Param(value = "minT", dD = 5) double minT,
+      @Param(value = "minDX", dD = 1) double minDX
+  ) {
+    return (agentSupplier, engine, snapshotConsumer) -> {
+      AtomicReference<A> agent = new AtomicReference<>();
+      double[] initialX = new double[]{Double.NaN};
+      return task.run(
+          () -> {
+            A a = agentSupplier.get();
+            agent.set(a);
+            return a;
+          },
+          EarlyStoppingEngine.of(engine, checkInterval, t -> {
+            if (agent.get() == null) {
+              return false;
+            }
+            BoundingBox boundingBox = agent.get().boundingBox();
+            double x = (boundingBox.min().x() + boundingBox.max().x()) / 2d;
+            if (Double.isNaN(x)) {
+              return true;
+            }
+            if (Double.isNaN(initialX[0])) {
+              initialX[0] = x;
+              return false;
+            }
+            return t >= minT && Math.abs(x - initialX[0]) < minDX;
+          }),
+          snapshotConsumer
+      );
+    };
+  }
+
+  @SuppressWarnings("unused")
+  public static <A, O> Task<A, O> recorded(
+      @Param("task") Task<A, O> task,
+      @Param("cFunction") Function<O, Double> cFunction,
+      @Param(value = "maximize", dB = true) boolean maximize,
+      @Param(value = "capacity", dI = 10) int capacity,
+      @Param(value = "frameRate", dD = 30) double frameRate,
+      @Param(value = "startTime", dD = 0) double startTime,
+      @Param(value = "endTime", dD = 30) double endTime,
+      @Param(value = "", injection = Param.Injection.MAP) ParamMap map
+  ) {
+    String taskDescription = map.npm("task").toString();
+    return (a, engine, snapshotConsumer) -> {
+      // snapshots go to a buffer of this evaluation, kept only if the solution is among the best ones
+      List<Snapshot> trace = new ArrayList<>();
+      O outcome = task.run(
+          a,
+          engine,
+          SnapshotRecorder.recorder(trace, frameRate, startTime, endTime).andThen(snapshotConsumer)
+      );
+      double value = cFunction.apply(outcome);
+      SnapshotRecorder.keep(a, taskDescription, trace, maximize ? value : -value, capacity);
+      return outcome;
+    };
+  }
+
+}
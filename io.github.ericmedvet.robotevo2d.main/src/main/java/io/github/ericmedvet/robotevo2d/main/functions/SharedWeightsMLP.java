@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.functions;
+
+import io.github.ericmedvet.mrsim2d.core.functions.MultiLayerPerceptron;
+import io.github.ericmedvet.mrsim2d.core.functions.TimedRealFunction;
+import io.github.ericmedvet.mrsim2d.core.util.Parametrized;
+
+import java.util.Arrays;
+
+/**
+ * A multi-layer perceptron whose weights are kept, by reference, in the array given to {@link #setParams(double[])}.
+ * Differently from {@link MultiLayerPerceptron}, the weights are not copied in an internal layout: hence, many
+ * instances can share the same array of weights, e.g., all the brains of a homogeneous distributed agent. The array is
+ * never modified by this class: callers that do not own it (e.g., mappers receiving a genotype from a solver) should
+ * hence set a copy of it.
+ * <p>
+ * The size of each inner layer is the size of the previous layer (the input layer, for the first one) times
+ * {@code innerLayerRatio}, rounded and at least 1; see {@link #innerNeurons(int, double, int)}.
+ */
+public class SharedWeightsMLP implements TimedRealFunction, Parametrized {
+
+  private final MultiLayerPerceptron.ActivationFunction activationFunction;
+  private final int[] neurons;
+  private final int[] weightOffsets;
+  private final double[][] activations;
+  private double[] weights;
+
+  public SharedWeightsMLP(
+      MultiLayerPerceptron.ActivationFunction activationFunction,
+      int nOfInputs,
+      int[] innerNeurons,
+      int nOfOutputs
+  ) {
+    this.activationFunction = activationFunction;
+    neurons = new int[innerNeurons.length + 2];
+    neurons[0] = nOfInputs;
+    System.arraycopy(innerNeurons, 0, neurons, 1, innerNeurons.length);
+    neurons[neurons.length - 1] = nOfOutputs;
+    weightOffsets = new int[neurons.length];
+    for (int l = 2; l < neurons.length; l++) {
+      weightOffsets[l] = weightOffsets[l - 1] + neurons[l - 1] * (neurons[l - 2] + 1);
+    }
+    activations = new double[neurons.length][];
+    for (int l = 0; l < neurons.length; l++) {
+      activations[l] = new double[neurons[l]];
+    }
+    weights = new double[nOfWeights(neurons)];
+  }
+
+  public static int[] innerNeurons(int nOfInputs, double innerLayerRatio, int nOfInnerLayers) {
+    int[] innerNeurons = new int[nOfInnerLayers];
+    int previousSize = nOfInputs;
+    for (int i = 0; i < nOfInnerLayers; i++) {
+      innerNeurons[i] = Math.max(1, (int) Math.round(previousSize * innerLayerRatio));
+      previousSize = innerNeurons[i];
+    }
+    return innerNeurons;
+  }
+
+  public static int nOfWeights(int[] neurons) {
+    int n = 0;
+    for (int l = 1; l < neurons.length; l++) {
+      n = n + neurons[l] * (neurons[l - 1] + 1);
+    }
+    return n;
+  }
+
+  @Override
+  public double[] apply(double t, double[] input) {
+    if (input.length != neurons[0]) {
+      throw new IllegalArgumentException("Wrong input size: %d expected, %d found".formatted(
+          neurons[0],
+          input.length
+      ));
+    }
+    System.arraycopy(input, 0, activations[0], 0, input.length);
+    for (int l = 1; l < neurons.length; l++) {
+      double[] previous = activations[l - 1];
+      double[] current = activations[l];
+      int c = weightOffsets[l];
+      for (int j = 0; j < neurons[l]; j++) {
+        double sum = weights[c]; // bias
+        c = c + 1;
+        for (int k = 0; k < previous.length; k++) {
+          sum = sum + weights[c + k] * previous[k];
+        }
+        c = c + previous.length;
+        current[j] = activationFunction.applyAsDouble(sum);
+      }
+    }
+    // the output is a new array, since agents might keep it (e.g., as signals for the next step)
+    return Arrays.copyOf(activations[neurons.length - 1], neurons[neurons.length - 1]);
+  }
+
+  @Override
+  public int nOfInputs() {
+    return neurons[0];
+  }
+
+  @Override
+  public int nOfOutputs() {
+    return neurons[neurons.length - 1];
+  }
+
+  @Override
+  public double[] getParams() {
+    return Arrays.copyOf(weights, weights.length);
+  }
+
+  @Override
+  public void setParams(double[] params) {
+    if (params.length != weights.length) {
+      throw new IllegalArgumentException("Wrong number of params: %d expected, %d found".formatted(
+          weights.length,
+          params.length
+      ));
+    }
+    weights = params;
+  }
+
+  @Override
+  public String toString() {
+    return "SharedWeightsMLP-%s-%s".formatted(
+        activationFunction.toString().toLowerCase(),
+        Arrays.stream(neurons).mapToObj(Integer::toString).reduce((s1, s2) -> s1 + ">" + s2).orElse("")
+    );
+  }
+}
@@ -16,8 +16,12 @@
 
 package io.github.ericmedvet.robotevo2d.main.helper;
 
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
 import io.github.ericmedvet.jnb.core.NamedBuilder;
 import io.github.ericmedvet.mrsim2d.core.Agent;
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
 import io.github.ericmedvet.mrsim2d.core.engine.Engine;
 import io.github.ericmedvet.mrsim2d.core.tasks.Task;
 import io.github.ericmedvet.mrsim2d.viewer.Drawer;
@@ -27,11 +31,22 @@ import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class AgentImageWriter {
 
@@ -61,44 +76,201 @@ public class AgentImageWriter {
       T0 + (N + 1d) * D_T
   );
 
+  public static class Configuration {
+    @Parameter(
+        description = "Agent description files, or glob patterns (e.g., agents/*.txt); if none, the built-in examples."
+    )
+    public List<String> agentDescriptionPaths = new ArrayList<>();
+
+    @Parameter(
+        names = {"--imgsPath", "-o"},
+        description = "Path of the directory where images are saved."
+    )
+    public String imgsPath = IMGS_PATH;
+
+    @Parameter(
+        names = {"--nOfThreads", "-n"},
+        description = "Number of threads to be used."
+    )
+    public int nOfThreads = Runtime.getRuntime().availableProcessors();
+
+    @Parameter(
+        names = {"--width"},
+        description = "Width of each frame."
+    )
+    public int w = W;
+
+    @Parameter(
+        names = {"--height"},
+        description = "Height of each frame."
+    )
+    public int h = H;
+
+    @Parameter(
+        names = {"--help", "-h"},
+        description = "Show this help.",
+        help = true
+    )
+    public boolean help;
+  }
+
+  private record AgentDescription(String name, String description) {}
+
+  private static String name(String path) {
+    String[] pieces = path.split("[/\\\\]");
+    return pieces[pieces.length - 1].split("\\.")[0];
+  }
+
+  private static List<AgentDescription> readAgentDescriptions(List<String> paths) throws IOException {
+    List<AgentDescription> agentDescriptions = new ArrayList<>();
+    if (paths.isEmpty()) {
+      for (String agentResourcePath : AGENT_DESCRIPTION_RESOURCE_PATHS) {
+        //noinspection DataFlowIssue
+        try (
+            InputStream inputStream = AgentImageWriter.class.getResourceAsStream(agentResourcePath);
+            BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))
+        ) {
+          agentDescriptions.add(new AgentDescription(
+              name(agentResourcePath),
+              br.lines().collect(Collectors.joining())
+          ));
+        }
+      }
+      return agentDescriptions;
+    }
+    for (String path : paths) {
+      for (Path filePath : resolve(path)) {
+        agentDescriptions.add(new AgentDescription(
+            name(filePath.toString()),
+            String.join("", Files.readAllLines(filePath))
+        ));
+      }
+    }
+    return agentDescriptions;
+  }
+
+  private static List<Path> resolve(String path) throws IOException {
+    if (!path.matches(".*[*?\\[{].*")) {
+      return List.of(Path.of(path));
+    }
+    //the search starts from the deepest dir not including glob chars
+    Path dir = Path.of(".");
+    String[] pieces = path.split("/");
+    StringBuilder prefix = new StringBuilder();
+    for (int i = 0; i < pieces.length - 1 && !pieces[i].matches(".*[*?\\[{].*"); i++) {
+      prefix.append(pieces[i]).append("/");
+    }
+    if (!prefix.isEmpty()) {
+      dir = Path.of(prefix.toString());
+    }
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + path);
+    Path finalDir = dir;
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths.filter(Files::isRegularFile)
+          .filter(p -> matcher.matches(prefix.isEmpty() ? finalDir.relativize(p) : p))
+          .sorted()
+          .toList();
+    }
+  }
+
   public static void main(String[] args) {
+    Configuration configuration = new Configuration();
+    JCommander jc = JCommander.newBuilder()
+        .addObject(configuration)
+        .build();
+    jc.setProgramName(AgentImageWriter.class.getName());
+    try {
+      jc.parse(args);
+    } catch (ParameterException e) {
+      e.usage();
+      System.err.printf("Cannot read command line options: %s%n", e);
+      System.exit(-1);
+    }
+    if (configuration.help) {
+      jc.usage();
+      System.exit(0);
+    }
     NamedBuilder<?> nb = PreparedNamedBuilder.get();
-    String imgsPath = args.length > 1 ? args[0] : IMGS_PATH;
-    List<String> agentResourcePaths = AGENT_DESCRIPTION_RESOURCE_PATHS;
     @SuppressWarnings("unchecked")
     Function<String, Drawer> drawer = (Function<String, Drawer>) nb.build(DRAWER_DESCRIPTION);
     @SuppressWarnings("unchecked")
     Supplier<Engine> engine = (Supplier<Engine>) nb.build(ENGINE_DESCRIPTION);
     @SuppressWarnings("unchecked")
     Task<Supplier<Agent>, ?> task = (Task<Supplier<Agent>, ?>) nb.build(TASK_DESCRIPTION);
+    List<AgentDescription> agentDescriptions;
+    try {
+      agentDescriptions = readAgentDescriptions(configuration.agentDescriptionPaths);
+    } catch (IOException e) {
+      System.err.printf("Cannot read agent descriptions: %s%n", e);
+      System.exit(-1);
+      return;
+    }
 
-    System.out.printf("Going to generate and save %d images.%n", agentResourcePaths.size());
-    for (String agentResourcePath : agentResourcePaths) {
-      String name = agentResourcePath.split("/")[agentResourcePath.split("/").length - 1].split("\\.")[0];
-      System.out.printf("Doing %s.%n", name);
-      //noinspection DataFlowIssue
-      try (
-          InputStream inputStream = AgentImageWriter.class.getResourceAsStream(agentResourcePath);
-          BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))
-      ) {
-        Supplier<Agent> agent = () -> (Agent) nb.build(br.lines().collect(Collectors.joining()));
-        FramesImageBuilder fib = new FramesImageBuilder(
-            W,
-            H,
-            N,
-            D_T,
-            FramesImageBuilder.Direction.HORIZONTAL,
-            true,
-            drawer.apply(name)
-        );
-        task.run(agent, engine.get(), fib);
-        BufferedImage bufferedImage = fib.get();
-        File imgFile = new File(imgsPath + File.separator + name + ".png");
-        ImageIO.write(bufferedImage, "png", imgFile);
-        System.out.printf("Image saved to %s.%n", imgFile);
-      } catch (IOException e) {
-        System.err.printf("Cannot generate image for %s because: %s%n", agentResourcePath, e);
+    System.out.printf(
+        "Going to generate and save %d images with %d threads.%n",
+        agentDescriptions.size(),
+        configuration.nOfThreads
+    );
+    long startNanos = System.nanoTime();
+    ExecutorService executorService = Executors.newFixedThreadPool(configuration.nOfThreads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (AgentDescription agentDescription : agentDescriptions) {
+      futures.add(executorService.submit(() -> {
+        try {
+          Supplier<Agent> agent = () -> (Agent) nb.build(agentDescription.description());
+          FramesImageBuilder fib = new FramesImageBuilder(
+              configuration.w,
+              configuration.h,
+              N,
+              D_T,
+              FramesImageBuilder.Direction.HORIZONTAL,
+              true,
+              drawer.apply(agentDescription.name())
+          );
+          //each simulation has its own engine, on the thread of the job; frames are drawn while simulating
+          long[] drawingNanos = new long[1];
+          Consumer<Snapshot> timedFib = snapshot -> {
+            long snapshotNanos = System.nanoTime();
+            fib.accept(snapshot);
+            drawingNanos[0] = drawingNanos[0] + System.nanoTime() - snapshotNanos;
+          };
+          long nanos = System.nanoTime();
+          task.run(agent, engine.get(), timedFib);
+          double simulationSeconds = (System.nanoTime() - nanos - drawingNanos[0]) / 1e9d;
+          double drawingSeconds = drawingNanos[0] / 1e9d;
+          nanos = System.nanoTime();
+          BufferedImage bufferedImage = fib.get();
+          double renderSeconds = (System.nanoTime() - nanos) / 1e9d;
+          nanos = System.nanoTime();
+          File imgFile = new File(configuration.imgsPath + File.separator + agentDescription.name() + ".png");
+          ImageIO.write(bufferedImage, "png", imgFile);
+          double writeSeconds = (System.nanoTime() - nanos) / 1e9d;
+          System.out.printf(
+              "Image of %s saved to %s (simulation %.3fs, drawing %.3fs, rendering %.3fs, writing %.3fs).%n",
+              agentDescription.name(),
+              imgFile,
+              simulationSeconds,
+              drawingSeconds,
+              renderSeconds,
+              writeSeconds
+          );
+        } catch (IOException | RuntimeException e) {
+          System.err.printf("Cannot generate image for %s because: %s%n", agentDescription.name(), e);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException | ExecutionException e) {
+        System.err.printf("Cannot generate image: %s%n", e);
       }
     }
+    executorService.shutdown();
+    System.out.printf(
+        "%d images done in %.3fs.%n",
+        agentDescriptions.size(),
+        (System.nanoTime() - startNanos) / 1e9d
+    );
   }
 }
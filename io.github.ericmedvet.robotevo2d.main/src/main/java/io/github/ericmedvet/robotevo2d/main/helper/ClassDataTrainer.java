@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.github.ericmedvet.robotevo2d.main.helper;
+
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.PreparedNamedBuilder;
+import io.github.ericmedvet.robotevo2d.main.util.CostEstimator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Exercises the classes needed by a typical launch (the prepared named builder, the example experiments, and a couple
+ * of evaluations for each of them), so that a class data sharing archive can be dumped at exit.
+ */
+public class ClassDataTrainer {
+
+  private final static Logger L = Logger.getLogger(ClassDataTrainer.class.getName());
+
+  private static final List<String> EXP_RESOURCES = List.of(
+      "/exp-examples/centralized-vsr.txt",
+      "/exp-examples/legged.txt"
+  );
+
+  public static void main(String[] args) {
+    NamedBuilder<Object> nb = PreparedNamedBuilder.get();
+    for (String expResource : EXP_RESOURCES) {
+      InputStream inputStream = ClassDataTrainer.class.getResourceAsStream(expResource);
+      if (inputStream == null) {
+        L.warning("Cannot find experiment description %s".formatted(expResource));
+        continue;
+      }
+      try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream))) {
+        String expDescription = br.lines().collect(Collectors.joining());
+        CostEstimator.Estimate estimate = CostEstimator.estimate(nb, expDescription, 1);
+        L.info("Trained on %s: %d mapper/problem pairs".formatted(expResource, estimate.pairCosts().size()));
+      } catch (IOException e) {
+        L.warning("Cannot read experiment description %s: %s".formatted(expResource, e));
+      }
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * The state of a run at a given iteration: the population, ranked, with the fitness of each individual, and the
+ * serialized random generator of the run, if serializable. Checkpoints are stored one file for run in a directory;
+ * each file is written aside and then renamed, so that it is never found partially written.
+ */
+public record Checkpoint(
+    int run,
+    long iteration,
+    boolean completed,
+    byte[] randomGeneratorState,
+    double[] fitnesses,
+    double[][] genotypes
+) {
+
+  private final static Logger L = Logger.getLogger(Checkpoint.class.getName());
+
+  private final static int MAGIC = 0x52324350;
+  private final static byte VERSION = 1;
+  private final static String FILE_NAME_FORMAT = "run-%d.checkpoint";
+  private final static String FILE_NAME_SUFFIX = ".checkpoint";
+
+  public static List<Checkpoint> readAll(String dirPath) {
+    Path dir = Path.of(dirPath);
+    if (!Files.isDirectory(dir)) {
+      return List.of();
+    }
+    List<Checkpoint> checkpoints = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : files.filter(f -> f.getFileName().toString().endsWith(FILE_NAME_SUFFIX)).toList()) {
+        try {
+          checkpoints.add(read(file));
+        } catch (IOException | IllegalArgumentException e) {
+          L.warning("Ignoring unreadable checkpoint %s: %s".formatted(file, e));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot list checkpoints in %s".formatted(dirPath), e);
+    }
+    checkpoints.sort(Comparator.comparingInt(Checkpoint::run));
+    return checkpoints;
+  }
+
+  private static Checkpoint read(Path file) throws IOException {
+    try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (dis.readInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a checkpoint file");
+      }
+      byte version = dis.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported version %d".formatted(version));
+      }
+      int run = dis.readInt();
+      long iteration = dis.readLong();
+      boolean completed = dis.readBoolean();
+      byte[] randomGeneratorState = dis.readNBytes(dis.readInt());
+      int n = dis.readInt();
+      double[] fitnesses = new double[n];
+      double[][] genotypes = new double[n][];
+      for (int i = 0; i < n; i++) {
+        fitnesses[i] = dis.readDouble();
+        genotypes[i] = GenotypeCodec.decode(dis.readNBytes(dis.readInt()));
+      }
+      return new Checkpoint(run, iteration, completed, randomGeneratorState, fitnesses, genotypes);
+    }
+  }
+
+  public static byte[] serialize(Object randomGenerator) {
+    if (!(randomGenerator instanceof Serializable)) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(randomGenerator);
+    } catch (IOException e) {
+      L.warning("Cannot serialize random generator: %s".formatted(e));
+      return new byte[0];
+    }
+    return baos.toByteArray();
+  }
+
+  public void write(String dirPath) {
+    Path dir = Path.of(dirPath);
+    Path file = dir.resolve(FILE_NAME_FORMAT.formatted(run));
+    try {
+      Files.createDirectories(dir);
+      Path tempFile = Files.createTempFile(dir, "run-%d-".formatted(run), ".tmp");
+      try {
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+          dos.writeInt(MAGIC);
+          dos.writeByte(VERSION);
+          dos.writeInt(run);
+          dos.writeLong(iteration);
+          dos.writeBoolean(completed);
+          dos.writeInt(randomGeneratorState.length);
+          dos.write(randomGeneratorState);
+          dos.writeInt(genotypes.length);
+          for (int i = 0; i < genotypes.length; i++) {
+            byte[] encoded = GenotypeCodec.encode(genotypes[i], true);
+            dos.writeDouble(fitnesses[i]);
+            dos.writeInt(encoded.length);
+            dos.write(encoded);
+          }
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write checkpoint %s".formatted(file), e);
+    }
+  }
+}
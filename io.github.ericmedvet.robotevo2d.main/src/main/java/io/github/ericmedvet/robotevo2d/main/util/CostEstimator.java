@@ -0,0 +1,209 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.jgea.core.TotalOrderQualityBasedProblem;
+import io.github.ericmedvet.jgea.experimenter.InvertibleMapper;
+import io.github.ericmedvet.jnb.core.NamedBuilder;
+import io.github.ericmedvet.jnb.core.NamedParamMap;
+import io.github.ericmedvet.jnb.core.StringParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.random.RandomGenerator;
+
+/**
+ * An estimate of the cost of an experiment, obtained by timing a few evaluations of random solutions for each distinct
+ * pair of mapper and problem, and by measuring the heap retained, after the evaluations, by the simulated agents and
+ * by the qualities. The projection assumes that the cost of the experiment is dominated by fitness evaluations, that
+ * these are evenly spread on the threads but, as the experimenter does, on no more threads than runs, and that each run
+ * going on keeps the qualities of a whole population.
+ */
+public class CostEstimator {
+
+  private final static Logger L = Logger.getLogger(CostEstimator.class.getName());
+
+  private final static int MAX_HEAP_SHARE_PERCENTAGE = 80;
+
+  private CostEstimator() {
+  }
+
+  public record PairCost(
+      String mapperDescription,
+      String problemDescription,
+      double evaluationSeconds,
+      long agentBytes,
+      long qualityBytes
+  ) {}
+
+  public record Estimate(
+      List<PairCost> pairCosts,
+      int nOfRuns,
+      long nOfEvaluations,
+      double cpuSeconds,
+      long baselineBytes,
+      int nOfPop,
+      int recommendedNOfThreads
+  ) {
+    private int nOfConcurrentRuns(int nOfThreads) {
+      return Math.max(1, Math.min(nOfRuns, nOfThreads));
+    }
+
+    public long peakBytes(int nOfThreads) {
+      // each thread holds one agent being simulated, each run going on holds the qualities of its population
+      long agentBytes = pairCosts.stream().mapToLong(PairCost::agentBytes).max().orElse(0);
+      long qualityBytes = pairCosts.stream().mapToLong(PairCost::qualityBytes).max().orElse(0);
+      return baselineBytes + nOfThreads * agentBytes + (long) nOfConcurrentRuns(nOfThreads) * nOfPop * qualityBytes;
+    }
+
+    public double wallSeconds(int nOfThreads) {
+      return cpuSeconds / nOfConcurrentRuns(nOfThreads);
+    }
+  }
+
+  public static Estimate estimate(NamedBuilder<?> nb, String expDescription, int nOfSamples) {
+    NamedParamMap experimentNPM = StringParser.parse(expDescription);
+    long baselineBytes = usedHeapBytes();
+    Map<String, PairCost> pairCosts = new LinkedHashMap<>();
+    List<NamedParamMap> runNPMs = experimentNPM.npms("runs");
+    long nOfEvaluations = 0;
+    double cpuSeconds = 0;
+    int nOfPop = 0;
+    for (int i = 0; i < runNPMs.size(); i++) {
+      NamedParamMap solverNPM = runNPMs.get(i).npm("solver");
+      NamedParamMap mapperNPM = solverNPM.npm("mapper");
+      NamedParamMap problemNPM = runNPMs.get(i).npm("problem");
+      String key = mapperNPM + "\n" + problemNPM;
+      PairCost pairCost = pairCosts.get(key);
+      if (pairCost == null) {
+        L.info("Sampling %d evaluations for the mapper/problem pair of run %d".formatted(nOfSamples, i));
+        pairCost = pairCost(nb, mapperNPM, problemNPM, nOfSamples);
+        pairCosts.put(key, pairCost);
+      }
+      Integer nEval = solverNPM.i("nEval");
+      if (nEval == null) {
+        L.warning("Cannot estimate the cost of run %d, since its solver has no nEval".formatted(i));
+        continue;
+      }
+      nOfEvaluations = nOfEvaluations + nEval;
+      cpuSeconds = cpuSeconds + nEval * pairCost.evaluationSeconds();
+      Integer runNOfPop = solverNPM.i("nPop");
+      if (runNOfPop == null) {
+        L.warning("Cannot estimate the heap retained by the population of run %d, since its solver has no nPop"
+            .formatted(i));
+        continue;
+      }
+      nOfPop = Math.max(nOfPop, runNOfPop);
+    }
+    Estimate estimate = new Estimate(
+        List.copyOf(pairCosts.values()),
+        runNPMs.size(),
+        nOfEvaluations,
+        cpuSeconds,
+        baselineBytes,
+        nOfPop,
+        1
+    );
+    // threads are bounded by the cores, by the runs, and by the heap
+    long maxBytes = Runtime.getRuntime().maxMemory() * MAX_HEAP_SHARE_PERCENTAGE / 100;
+    int nOfThreads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), runNPMs.size()));
+    while (nOfThreads > 1 && estimate.peakBytes(nOfThreads) > maxBytes) {
+      nOfThreads = nOfThreads - 1;
+    }
+    return new Estimate(
+        estimate.pairCosts(),
+        estimate.nOfRuns(),
+        nOfEvaluations,
+        cpuSeconds,
+        baselineBytes,
+        nOfPop,
+        nOfThreads
+    );
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PairCost pairCost(
+      NamedBuilder<?> nb,
+      NamedParamMap mapperNPM,
+      NamedParamMap problemNPM,
+      int nOfSamples
+  ) {
+    InvertibleMapper<Object, Object> mapper = (InvertibleMapper<Object, Object>) nb.build(mapperNPM);
+    TotalOrderQualityBasedProblem<Object, ?> problem = (TotalOrderQualityBasedProblem<Object, ?>) nb.build(problemNPM);
+    Function<Object, ?> qualityFunction = problem.qualityFunction();
+    // agents are kept once built, so that they can be measured after having been simulated
+    List<Object> agents = new ArrayList<>();
+    List<Object> solutions = new ArrayList<>();
+    for (int i = 0; i < nOfSamples + 1; i++) {
+      Object solution = mapper.apply(randomGenotype(mapper.exampleInput(), RandomStreams.stream(0, 0, 0, i)));
+      if (solution instanceof Supplier<?> supplier && i > 0) {
+        solution = (Supplier<Object>) () -> {
+          Object agent = supplier.get();
+          agents.add(agent);
+          return agent;
+        };
+      }
+      solutions.add(solution);
+    }
+    // the first evaluation is not timed, as it includes class loading and the like
+    qualityFunction.apply(solutions.get(0));
+    long usedBytes = usedHeapBytes();
+    List<Object> qualities = new ArrayList<>();
+    long startNanos = System.nanoTime();
+    for (Object solution : solutions.subList(1, solutions.size())) {
+      qualities.add(qualityFunction.apply(solution));
+    }
+    double evaluationSeconds = (System.nanoTime() - startNanos) / 1e9d / nOfSamples;
+    // retained heap is measured on simulated agents and qualities kept alive at once
+    long agentsAndQualitiesBytes = Math.max(0, usedHeapBytes() - usedBytes);
+    agents.clear();
+    long qualityBytes = Math.max(0, usedHeapBytes() - usedBytes) / qualities.size();
+    long agentBytes = Math.max(0, agentsAndQualitiesBytes / qualities.size() - qualityBytes);
+    L.fine("%d agents retain %d bytes, %d qualities retain %d bytes".formatted(
+        nOfSamples,
+        agentBytes * nOfSamples,
+        qualities.size(),
+        qualityBytes * qualities.size()
+    ));
+    return new PairCost(mapperNPM.toString(), problemNPM.toString(), evaluationSeconds, agentBytes, qualityBytes);
+  }
+
+  private static Object randomGenotype(Object exampleInput, RandomGenerator randomGenerator) {
+    if (exampleInput instanceof double[] values) {
+      return randomGenerator.doubles(values.length, -1, 1).toArray();
+    }
+    if (exampleInput instanceof List<?> values) {
+      return Arrays.stream(randomGenerator.doubles(values.size(), -1, 1).toArray()).boxed().toList();
+    }
+    return exampleInput;
+  }
+
+  private static long usedHeapBytes() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
+
+import java.awt.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * A consumer of snapshots which decouples the simulation from a (realtime) viewer. The simulation thread just publishes
+ * the latest snapshot in a single slot, without locking, and possibly waits for not running faster than wall-clock time;
+ * a drawing thread takes the snapshot from the slot at the viewer frame rate, skipping the ones published in between.
+ * The simulation speed with respect to wall-clock time is shown in the title of the viewer, if it is a frame, and
+ * periodically logged.
+ */
+public class DecoupledViewer implements Consumer<Snapshot>, AutoCloseable {
+
+  private final static Logger L = Logger.getLogger(DecoupledViewer.class.getName());
+
+  private final static long READOUT_INTERVAL_NANOS = 1_000_000_000L;
+
+  private final Consumer<Snapshot> viewer;
+  private final boolean realTime;
+  private final AtomicReference<Snapshot> slot;
+  private final AtomicLong nOfPublished;
+  private final ScheduledExecutorService drawingExecutorService;
+  private volatile long startNanos;
+  private long nOfDrawn;
+  private long lastReadoutNanos;
+
+  public DecoupledViewer(double frameRate, Consumer<Snapshot> viewer, boolean realTime) {
+    this.viewer = viewer;
+    this.realTime = realTime;
+    slot = new AtomicReference<>();
+    nOfPublished = new AtomicLong();
+    startNanos = -1;
+    drawingExecutorService = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "viewer-drawer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    drawingExecutorService.scheduleAtFixedRate(
+        this::draw,
+        0,
+        Math.round(1e9d / frameRate),
+        TimeUnit.NANOSECONDS
+    );
+  }
+
+  @Override
+  public void accept(Snapshot snapshot) {
+    if (nOfPublished.getAndIncrement() == 0) {
+      startNanos = System.nanoTime();
+    }
+    slot.set(snapshot);
+    if (realTime) {
+      long aheadNanos = Math.round(snapshot.t() * 1e9d) - (System.nanoTime() - startNanos);
+      if (aheadNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    drawingExecutorService.shutdown();
+    try {
+      drawingExecutorService.awaitTermination(1, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // the last snapshot, if not yet drawn, is drawn anyway
+    draw();
+  }
+
+  private synchronized void draw() {
+    Snapshot snapshot = slot.getAndSet(null);
+    if (snapshot == null) {
+      return;
+    }
+    try {
+      viewer.accept(snapshot);
+    } catch (RuntimeException e) {
+      L.warning("Cannot draw: %s".formatted(e));
+    }
+    nOfDrawn = nOfDrawn + 1;
+    long nanos = System.nanoTime();
+    if (nanos - lastReadoutNanos >= READOUT_INTERVAL_NANOS) {
+      lastReadoutNanos = nanos;
+      double wallT = (double) (nanos - startNanos) / 1e9d;
+      String readout = "t=%.1fs wall=%.1fs speed=%.2fx drawn=%d/%d".formatted(
+          snapshot.t(),
+          wallT,
+          snapshot.t() / wallT,
+          nOfDrawn,
+          nOfPublished.get()
+      );
+      if (viewer instanceof Frame frame) {
+        EventQueue.invokeLater(() -> frame.setTitle(readout));
+      }
+      L.info(readout);
+    }
+  }
+}
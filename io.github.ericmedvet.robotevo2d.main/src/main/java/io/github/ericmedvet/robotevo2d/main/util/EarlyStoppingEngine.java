@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.mrsim2d.core.engine.Engine;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.DoublePredicate;
+
+/**
+ * Wraps an {@link Engine} so that a task using it can be stopped before its natural end. After the first tick and then
+ * every {@code checkInterval} simulated seconds, the {@code stopCondition} is tested on the current simulation time:
+ * once it holds, the engine keeps working normally, but its {@link Engine#t()} starts returning
+ * {@link Double#POSITIVE_INFINITY} (after one more regular invocation, that tasks use for recording the last
+ * observation). Hence, tasks iterating while {@code engine.t() < duration} end early and build their outcome on the
+ * observations collected so far. The engine has no other way to stop a task: for not silently simulating in full a
+ * task which does not check {@link Engine#t()}, the engine throws an {@link IllegalStateException} if the task keeps
+ * ticking more than {@code MAX_TICKS_AFTER_STOP} times after the stop.
+ */
+public class EarlyStoppingEngine implements InvocationHandler {
+
+  private final static int MAX_TICKS_AFTER_STOP = 10;
+
+  private final Engine engine;
+  private final double checkInterval;
+  private final DoublePredicate stopCondition;
+  private double nextCheckT;
+  private boolean stopped;
+  private int nOfTimeInvocationsAfterStop;
+  private int nOfTicksAfterStop;
+
+  private EarlyStoppingEngine(Engine engine, double checkInterval, DoublePredicate stopCondition) {
+    this.engine = engine;
+    this.checkInterval = checkInterval;
+    this.stopCondition = stopCondition;
+    nextCheckT = 0;
+  }
+
+  public static Engine of(Engine engine, double checkInterval, DoublePredicate stopCondition) {
+    return (Engine) Proxy.newProxyInstance(
+        Engine.class.getClassLoader(),
+        new Class<?>[]{Engine.class},
+        new EarlyStoppingEngine(engine, checkInterval, stopCondition)
+    );
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (stopped && method.getName().equals("tick") && method.getParameterCount() == 0) {
+      nOfTicksAfterStop = nOfTicksAfterStop + 1;
+      if (nOfTicksAfterStop > MAX_TICKS_AFTER_STOP) {
+        throw new IllegalStateException("Task still ticking %d times after the early stop: it ignores engine.t()"
+            .formatted(MAX_TICKS_AFTER_STOP));
+      }
+    }
+    if (stopped && method.getName().equals("t") && method.getParameterCount() == 0) {
+      nOfTimeInvocationsAfterStop = nOfTimeInvocationsAfterStop + 1;
+      if (nOfTimeInvocationsAfterStop > 1) {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+    Object result;
+    try {
+      result = method.invoke(engine, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+    if (!stopped && method.getName().equals("tick") && method.getParameterCount() == 0) {
+      double t = engine.t();
+      if (t >= nextCheckT) {
+        nextCheckT = nextCheckT + checkInterval;
+        stopped = stopCondition.test(t);
+      }
+    }
+    return result;
+  }
+}
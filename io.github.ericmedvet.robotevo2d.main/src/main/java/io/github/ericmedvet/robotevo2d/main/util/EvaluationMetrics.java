@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Samples of the costs of fitness evaluations (time spent building the agent, time spent simulating, bytes allocated
+ * by the evaluating thread) and of listeners, kept for the last {@code windowSize} evaluations (and listener
+ * invocations), so that percentiles are meaningful also when few evaluations are done between two summaries. A
+ * {@link #summarize()} computes the percentiles on the window and counts the evaluations done since the previous one.
+ * The last summary is exposed as an MBean. Building times are reported, per thread, by {@link MappedSupplier}s: they
+ * are hence not available for solutions not coming from a parametrized mapper.
+ */
+public class EvaluationMetrics implements EvaluationMetricsMBean {
+
+  private final static com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+      (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported()) ? bean : null;
+  private final static ThreadLocal<long[]> BUILD_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+  private final int windowSize;
+  private final Deque<Double> buildMillis;
+  private final Deque<Double> simulationMillis;
+  private final Deque<Double> allocatedMB;
+  private final Deque<Double> listenersMillis;
+  private long nOfEvaluations;
+  private volatile Summary lastSummary;
+
+  public EvaluationMetrics(int windowSize) {
+    this.windowSize = windowSize;
+    buildMillis = new ArrayDeque<>();
+    simulationMillis = new ArrayDeque<>();
+    allocatedMB = new ArrayDeque<>();
+    listenersMillis = new ArrayDeque<>();
+    lastSummary = new Summary(0, Percentiles.EMPTY, Percentiles.EMPTY, Percentiles.EMPTY, Percentiles.EMPTY);
+  }
+
+  public record Percentiles(double p50, double p95, double p99) {
+    private final static Percentiles EMPTY = new Percentiles(Double.NaN, Double.NaN, Double.NaN);
+
+    private static Percentiles of(Collection<Double> values) {
+      if (values.isEmpty()) {
+        return EMPTY;
+      }
+      double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+      Arrays.sort(sorted);
+      return new Percentiles(percentile(sorted, 0.5), percentile(sorted, 0.95), percentile(sorted, 0.99));
+    }
+
+    private static double percentile(double[] sorted, double p) {
+      return sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+  }
+
+  public record Summary(
+      long nOfEvaluations,
+      Percentiles buildMillis,
+      Percentiles simulationMillis,
+      Percentiles allocatedMB,
+      Percentiles listenersMillis
+  ) {}
+
+  public static void addBuildNanos(long nanos) {
+    BUILD_NANOS.get()[0] += nanos;
+  }
+
+  public static long takeBuildNanos() {
+    long[] buildNanos = BUILD_NANOS.get();
+    long nanos = buildNanos[0];
+    buildNanos[0] = 0;
+    return nanos;
+  }
+
+  public static long currentThreadAllocatedBytes() {
+    return THREAD_MX_BEAN == null ? 0 : THREAD_MX_BEAN.getCurrentThreadAllocatedBytes();
+  }
+
+  public synchronized Summary summarize() {
+    lastSummary = new Summary(
+        nOfEvaluations,
+        Percentiles.of(buildMillis),
+        Percentiles.of(simulationMillis),
+        Percentiles.of(allocatedMB),
+        Percentiles.of(listenersMillis)
+    );
+    nOfEvaluations = 0;
+    return lastSummary;
+  }
+
+  private void add(Deque<Double> samples, double value) {
+    samples.addLast(value);
+    if (samples.size() > windowSize) {
+      samples.removeFirst();
+    }
+  }
+
+  public synchronized void recordEvaluation(long buildNanos, long simulationNanos, long allocatedBytes) {
+    nOfEvaluations = nOfEvaluations + 1;
+    add(buildMillis, buildNanos / 1e6d);
+    add(simulationMillis, simulationNanos / 1e6d);
+    add(allocatedMB, allocatedBytes / 1024d / 1024d);
+  }
+
+  public synchronized void recordListeners(long nanos) {
+    add(listenersMillis, nanos / 1e6d);
+  }
+
+  @Override
+  public double getAllocatedMBP50() {
+    return lastSummary.allocatedMB().p50();
+  }
+
+  @Override
+  public double getAllocatedMBP95() {
+    return lastSummary.allocatedMB().p95();
+  }
+
+  @Override
+  public double getAllocatedMBP99() {
+    return lastSummary.allocatedMB().p99();
+  }
+
+  @Override
+  public double getBuildMillisP50() {
+    return lastSummary.buildMillis().p50();
+  }
+
+  @Override
+  public double getBuildMillisP95() {
+    return lastSummary.buildMillis().p95();
+  }
+
+  @Override
+  public double getBuildMillisP99() {
+    return lastSummary.buildMillis().p99();
+  }
+
+  @Override
+  public double getListenersMillisP50() {
+    return lastSummary.listenersMillis().p50();
+  }
+
+  @Override
+  public double getListenersMillisP95() {
+    return lastSummary.listenersMillis().p95();
+  }
+
+  @Override
+  public double getListenersMillisP99() {
+    return lastSummary.listenersMillis().p99();
+  }
+
+  @Override
+  public long getNOfEvaluations() {
+    return lastSummary.nOfEvaluations();
+  }
+
+  @Override
+  public double getSimulationMillisP50() {
+    return lastSummary.simulationMillis().p50();
+  }
+
+  @Override
+  public double getSimulationMillisP95() {
+    return lastSummary.simulationMillis().p95();
+  }
+
+  @Override
+  public double getSimulationMillisP99() {
+    return lastSummary.simulationMillis().p99();
+  }
+}
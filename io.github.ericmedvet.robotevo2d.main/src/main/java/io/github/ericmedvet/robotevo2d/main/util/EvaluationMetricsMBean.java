@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+public interface EvaluationMetricsMBean {
+  double getAllocatedMBP50();
+
+  double getAllocatedMBP95();
+
+  double getAllocatedMBP99();
+
+  double getBuildMillisP50();
+
+  double getBuildMillisP95();
+
+  double getBuildMillisP99();
+
+  double getListenersMillisP50();
+
+  double getListenersMillisP95();
+
+  double getListenersMillisP99();
+
+  long getNOfEvaluations();
+
+  double getSimulationMillisP50();
+
+  double getSimulationMillisP95();
+
+  double getSimulationMillisP99();
+}
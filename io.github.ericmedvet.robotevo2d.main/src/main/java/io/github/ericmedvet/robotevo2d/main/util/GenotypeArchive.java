@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * An append-only archive of genotypes, stored in a memory-mapped data file, and of an index file. Genotypes are
+ * appended in blocks, one for each iteration of each run, of fixed-width little-endian records: run index (int),
+ * iteration (long), rank (int), fitness (double), and genotype (doubles). For each block, the index contains the run
+ * index (int), the iteration (long), the offset of the block in the data file (long), the number of records (int), and
+ * the genotype size (int): a genotype can hence be found by reading just the index and one record.
+ */
+public class GenotypeArchive implements AutoCloseable {
+
+  private final static Logger L = Logger.getLogger(GenotypeArchive.class.getName());
+
+  private final static String INDEX_EXTENSION = ".index";
+  private final static long REGION_SIZE = 64L * 1024L * 1024L;
+  private final static int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES + Integer.BYTES + Double.BYTES;
+  private final static int INDEX_ENTRY_BYTES = Integer.BYTES + Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+  private final Path dataPath;
+  private final FileChannel dataChannel;
+  private final FileChannel indexChannel;
+  private MappedByteBuffer region;
+  private long regionStart;
+  private long position;
+
+  public GenotypeArchive(String filePath) {
+    dataPath = Path.of(filePath);
+    try {
+      dataChannel = FileChannel.open(
+          dataPath,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE
+      );
+      indexChannel = FileChannel.open(
+          Path.of(filePath + INDEX_EXTENSION),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND
+      );
+      // the data file may be longer than its content, if not closed, hence the end is taken from the index
+      position = 0;
+      List<Entry> entries = readIndex(Path.of(filePath + INDEX_EXTENSION));
+      if (!entries.isEmpty()) {
+        Entry last = entries.get(entries.size() - 1);
+        position = last.offset() + (long) last.nOfRecords() * recordBytes(last.genotypeSize());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open archive %s".formatted(filePath), e);
+    }
+  }
+
+  public record Entry(int run, long iteration, long offset, int nOfRecords, int genotypeSize) {}
+
+  public record Record(int run, long iteration, int rank, double fitness, double[] genotype) {}
+
+  public static Record read(String filePath, int run, long iteration, int rank) {
+    try {
+      List<Entry> entries = readIndex(Path.of(filePath + INDEX_EXTENSION));
+      Entry entry = null;
+      for (Entry e : entries) {
+        if (e.run() == run && (iteration < 0 || e.iteration() == iteration)) {
+          entry = e;
+        }
+      }
+      if (entry == null) {
+        throw new IllegalArgumentException("No iteration %s of run %d in archive %s".formatted(
+            iteration < 0 ? "at all" : Long.toString(iteration),
+            run,
+            filePath
+        ));
+      }
+      if (rank < 0 || rank >= entry.nOfRecords()) {
+        throw new IllegalArgumentException("Wrong rank %d: iteration %d of run %d has %d individuals".formatted(
+            rank,
+            entry.iteration(),
+            run,
+            entry.nOfRecords()
+        ));
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(recordBytes(entry.genotypeSize())).order(ByteOrder.LITTLE_ENDIAN);
+      try (FileChannel channel = FileChannel.open(Path.of(filePath), StandardOpenOption.READ)) {
+        long offset = entry.offset() + (long) rank * recordBytes(entry.genotypeSize());
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, offset + buffer.position()) < 0) {
+            throw new IOException("Unexpected end of archive");
+          }
+        }
+      }
+      buffer.flip();
+      Record record = new Record(buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getDouble(), new double[entry
+          .genotypeSize()]);
+      buffer.asDoubleBuffer().get(record.genotype());
+      return record;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read archive %s".formatted(filePath), e);
+    }
+  }
+
+  private static List<Entry> readIndex(Path indexPath) throws IOException {
+    if (!Files.exists(indexPath)) {
+      return List.of();
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexPath)).order(ByteOrder.LITTLE_ENDIAN);
+    Entry[] entries = new Entry[buffer.remaining() / INDEX_ENTRY_BYTES];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = new Entry(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt());
+    }
+    return List.of(entries);
+  }
+
+  private static int recordBytes(int genotypeSize) {
+    return RECORD_HEADER_BYTES + genotypeSize * Double.BYTES;
+  }
+
+  public synchronized void append(int run, long iteration, double[] fitnesses, double[][] genotypes) {
+    if (genotypes.length == 0) {
+      return;
+    }
+    int genotypeSize = genotypes[0].length;
+    for (double[] genotype : genotypes) {
+      if (genotype.length != genotypeSize) {
+        throw new IllegalArgumentException("Genotypes of different sizes in iteration %d of run %d: %d and %d".formatted(
+            iteration,
+            run,
+            genotypeSize,
+            genotype.length
+        ));
+      }
+    }
+    long blockBytes = (long) genotypes.length * recordBytes(genotypeSize);
+    try {
+      if (region == null || position + blockBytes > regionStart + region.capacity()) {
+        regionStart = position;
+        region = dataChannel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, blockBytes));
+        region.order(ByteOrder.LITTLE_ENDIAN);
+      }
+      region.position((int) (position - regionStart));
+      for (int rank = 0; rank < genotypes.length; rank++) {
+        region.putInt(run).putLong(iteration).putInt(rank).putDouble(fitnesses[rank]);
+        for (double v : genotypes[rank]) {
+          region.putDouble(v);
+        }
+      }
+      ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+          .putInt(run)
+          .putLong(iteration)
+          .putLong(position)
+          .putInt(genotypes.length)
+          .putInt(genotypeSize)
+          .flip();
+      while (entry.hasRemaining()) {
+        indexChannel.write(entry);
+      }
+      position = position + blockBytes;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot append to archive", e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      if (region != null) {
+        region.force();
+        // the region is not accessed anymore: it is unmapped when collected, which cannot be forced
+        region = null;
+      }
+      indexChannel.close();
+      dataChannel.close();
+    } catch (IOException e) {
+      L.warning("Cannot close archive: %s".formatted(e));
+      return;
+    }
+    // the data file is cut to its actual content with a new channel, since the mapped one is closed; where a file
+    // cannot be truncated while still mapped (e.g., on Windows), it is left longer, that is harmless for the index
+    try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.WRITE)) {
+      channel.truncate(position);
+    } catch (IOException e) {
+      L.fine("Cannot truncate archive: %s".formatted(e));
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A compact binary format for numeric genotypes: one flags byte (currently, just whether the rest is deflated), then
+ * the number of values as a little-endian int, then the values as little-endian doubles. When decoding, the number of
+ * values is checked against the size of the payload before allocating anything, so that corrupted or foreign bytes
+ * fail fast with an {@link IllegalArgumentException}.
+ */
+public class GenotypeCodec {
+
+  private final static byte COMPRESSED = 1;
+  private final static int HEADER_BYTES = 1 + Integer.BYTES;
+  private final static int MAX_VALUES = (Integer.MAX_VALUE - 8) / Double.BYTES;
+  // deflate cannot compress more than about 1032:1
+  private final static int MAX_DEFLATE_RATIO = 1032;
+
+  private GenotypeCodec() {
+  }
+
+  public static double[] decode(byte[] bytes) {
+    if (bytes.length < HEADER_BYTES) {
+      throw new IllegalArgumentException("Too few bytes: %d, at least %d expected".formatted(
+          bytes.length,
+          HEADER_BYTES
+      ));
+    }
+    ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    byte flags = header.get();
+    int n = header.getInt();
+    if (!isEncoded(bytes)) {
+      throw new IllegalArgumentException("Unknown flags: %d".formatted(flags));
+    }
+    if (n < 0 || n > MAX_VALUES) {
+      throw new IllegalArgumentException("Wrong number of values: %d".formatted(n));
+    }
+    long size = (long) n * Double.BYTES;
+    long payloadSize = bytes.length - HEADER_BYTES;
+    if ((flags & COMPRESSED) != 0 ? size > payloadSize * MAX_DEFLATE_RATIO + 1 : size != payloadSize) {
+      throw new IllegalArgumentException("Wrong payload size: %d bytes for %d values".formatted(payloadSize, n));
+    }
+    byte[] payload = Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length);
+    if ((flags & COMPRESSED) != 0) {
+      payload = inflate(payload, (int) size);
+    }
+    double[] values = new double[n];
+    ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(values);
+    return values;
+  }
+
+  public static byte[] encode(double[] values, boolean compressed) {
+    ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.asDoubleBuffer().put(values);
+    byte[] payload = buffer.array();
+    if (compressed) {
+      payload = deflate(payload);
+    }
+    return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .put(compressed ? COMPRESSED : 0)
+        .putInt(values.length)
+        .put(payload)
+        .array();
+  }
+
+  public static boolean isEncoded(byte[] bytes) {
+    return bytes.length >= HEADER_BYTES && (bytes[0] & ~COMPRESSED) == 0;
+  }
+
+  public static double[] toArray(Object genotype) {
+    if (genotype instanceof double[] values) {
+      return values;
+    }
+    if (genotype instanceof List<?> list) {
+      double[] values = new double[list.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = ((Number) list.get(i)).doubleValue();
+      }
+      return values;
+    }
+    throw new IllegalArgumentException("Cannot encode a %s as numeric genotype".formatted(genotype.getClass()
+        .getSimpleName()));
+  }
+
+  private static byte[] deflate(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    deflater.setInput(bytes);
+    deflater.finish();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length);
+    byte[] buffer = new byte[4096];
+    while (!deflater.finished()) {
+      baos.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+    return baos.toByteArray();
+  }
+
+  private static byte[] inflate(byte[] bytes, int size) {
+    Inflater inflater = new Inflater();
+    inflater.setInput(bytes);
+    byte[] inflated = new byte[size];
+    try {
+      int n = 0;
+      while (n < size && !inflater.finished()) {
+        int inflatedBytes = inflater.inflate(inflated, n, size - n);
+        if (inflatedBytes == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        n = n + inflatedBytes;
+      }
+      if (n != size) {
+        throw new IllegalArgumentException("Wrong inflated size: %d bytes, %d expected".formatted(n, size));
+      }
+      return inflated;
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Cannot inflate: %s".formatted(e), e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
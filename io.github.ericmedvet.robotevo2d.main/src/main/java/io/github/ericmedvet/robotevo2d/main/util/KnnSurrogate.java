@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A k-nearest-neighbors surrogate of the quality function, trained on the genotypes actually evaluated and their
+ * qualities, that are kept in a bounded archive. The quality of a genotype is actually computed if the archive is still
+ * small, if its predicted rank in the archive, i.e., the mean of the ranks of its {@code k} nearest neighbors weighted
+ * by the inverse of their distance, is among the best {@code rate} fraction (i.e., the genotype may be in contention),
+ * or, to keep the surrogate honest, for a {@code randomRate} fraction of the genotypes, chosen deterministically by
+ * genotype. Otherwise, the worst quality among the {@code k} nearest neighbors is returned, hence a genotype predicted
+ * out of contention never gets a quality better than the ones its prediction is based on. Genotypes are copied into
+ * the archive; actual qualities are computed outside the lock.
+ */
+public class KnnSurrogate<Q> {
+
+  private final int k;
+  private final int archiveSize;
+  private final int minArchiveSize;
+  private final double rate;
+  private final double randomRate;
+  private final Comparator<Q> comparator;
+  private final Deque<Entry<Q>> archive;
+  private final AtomicLong nOfComputed;
+  private final AtomicLong nOfPredicted;
+
+  public KnnSurrogate(
+      int k,
+      int archiveSize,
+      int minArchiveSize,
+      double rate,
+      double randomRate,
+      Comparator<Q> comparator
+  ) {
+    this.k = k;
+    this.archiveSize = archiveSize;
+    this.minArchiveSize = Math.max(k, minArchiveSize);
+    this.rate = rate;
+    this.randomRate = randomRate;
+    this.comparator = comparator;
+    archive = new ArrayDeque<>(archiveSize);
+    nOfComputed = new AtomicLong();
+    nOfPredicted = new AtomicLong();
+  }
+
+  private record Entry<Q>(double[] genotype, Q quality) {}
+
+  private static double squaredDistance(double[] values1, double[] values2) {
+    double d = 0;
+    for (int i = 0; i < values1.length; i++) {
+      double diff = values1[i] - values2[i];
+      d = d + diff * diff;
+    }
+    return d;
+  }
+
+  public Q get(double[] genotype, Supplier<Q> qualitySupplier) {
+    boolean random = RandomStreams.stream(0, 0, RandomStreams.key(genotype), 0).nextDouble() < randomRate;
+    Q predictedQ = random ? null : predict(genotype);
+    if (predictedQ != null) {
+      nOfPredicted.incrementAndGet();
+      return predictedQ;
+    }
+    nOfComputed.incrementAndGet();
+    Q q = qualitySupplier.get();
+    synchronized (archive) {
+      // the caller may reuse the genotype array
+      archive.addLast(new Entry<>(genotype.clone(), q));
+      if (archive.size() > archiveSize) {
+        archive.removeFirst();
+      }
+    }
+    return q;
+  }
+
+  public long nOfComputed() {
+    return nOfComputed.get();
+  }
+
+  public long nOfPredicted() {
+    return nOfPredicted.get();
+  }
+
+  public double predictedRate() {
+    long lookups = nOfComputed() + nOfPredicted();
+    return lookups == 0 ? 0d : (double) nOfPredicted() / (double) lookups;
+  }
+
+  private Q predict(double[] genotype) {
+    List<Entry<Q>> entries;
+    synchronized (archive) {
+      if (archive.size() < minArchiveSize) {
+        return null;
+      }
+      entries = List.copyOf(archive);
+    }
+    // partial selection of the k nearest neighbors, nearest first
+    @SuppressWarnings("unchecked") Entry<Q>[] nearest = new Entry[k];
+    double[] distances = new double[k];
+    Arrays.fill(distances, Double.POSITIVE_INFINITY);
+    for (Entry<Q> entry : entries) {
+      if (entry.genotype().length != genotype.length) {
+        continue;
+      }
+      double d = squaredDistance(genotype, entry.genotype());
+      int i = k - 1;
+      if (d >= distances[i]) {
+        continue;
+      }
+      while (i > 0 && distances[i - 1] > d) {
+        distances[i] = distances[i - 1];
+        nearest[i] = nearest[i - 1];
+        i = i - 1;
+      }
+      distances[i] = d;
+      nearest[i] = entry;
+    }
+    if (nearest[k - 1] == null) {
+      return null;
+    }
+    // the predicted rank is the mean of the ranks of the neighbors in the archive, weighted by inverse distance
+    double weightedRank = 0;
+    double weightSum = 0;
+    for (int i = 0; i < k; i++) {
+      Q neighborQ = nearest[i].quality();
+      long nOfBetter = entries.stream().filter(e -> comparator.compare(e.quality(), neighborQ) < 0).count();
+      double weight = 1d / (Math.sqrt(distances[i]) + Double.MIN_NORMAL);
+      weightedRank = weightedRank + weight * nOfBetter;
+      weightSum = weightSum + weight;
+    }
+    if (weightedRank / weightSum < rate * entries.size()) {
+      return null;
+    }
+    Q worstQ = nearest[0].quality();
+    for (int i = 1; i < k; i++) {
+      if (comparator.compare(nearest[i].quality(), worstQ) > 0) {
+        worstQ = nearest[i].quality();
+      }
+    }
+    return worstQ;
+  }
+
+  @Override
+  public String toString() {
+    return "KnnSurrogate{computed=%d; predicted=%d; predictedRate=%.2f}".formatted(
+        nOfComputed(),
+        nOfPredicted(),
+        predictedRate()
+    );
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.jnb.core.NamedParamMap;
+
+import java.util.function.Supplier;
+
+/**
+ * A supplier of agents built by one of the parametrized mappers, that keeps track of the genotype it has been built
+ * from and of the descriptions of the mapper and of the target agent. The genotype is the array given to the mapper,
+ * that is handed over to the supplier and hence must not be modified afterwards; each agent built by the supplier
+ * gets its own copy of it. Random streams created while building the agent (see {@link RandomStreams}) depend on the
+ * genotype.
+ */
+public record MappedSupplier<T>(
+    double[] genotype,
+    NamedParamMap mapperNPM,
+    NamedParamMap targetNPM,
+    Supplier<T> supplier
+) implements Supplier<T> {
+  @Override
+  public T get() {
+    long startNanos = System.nanoTime();
+    T t = RandomStreams.withKey(RandomStreams.key(genotype), supplier);
+    EvaluationMetrics.addBuildNanos(System.nanoTime() - startNanos);
+    return t;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.jgea.core.TotalOrderQualityBasedProblem;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+/**
+ * A problem whose fitness evaluations are metered: for each evaluation, the time spent building the agent, the time
+ * spent simulating, and the bytes allocated by the evaluating thread are recorded in the {@link EvaluationMetrics}.
+ */
+public record MeteredProblem<S, Q>(
+    TotalOrderQualityBasedProblem<S, Q> problem,
+    EvaluationMetrics metrics
+) implements TotalOrderQualityBasedProblem<S, Q> {
+  @Override
+  public Comparator<Q> totalOrderComparator() {
+    return problem.totalOrderComparator();
+  }
+
+  @Override
+  public Function<S, Q> qualityFunction() {
+    Function<S, Q> qualityFunction = problem.qualityFunction();
+    return s -> {
+      EvaluationMetrics.takeBuildNanos();
+      long allocatedBytes = EvaluationMetrics.currentThreadAllocatedBytes();
+      long startNanos = System.nanoTime();
+      Q q = qualityFunction.apply(s);
+      long elapsedNanos = System.nanoTime() - startNanos;
+      long buildNanos = EvaluationMetrics.takeBuildNanos();
+      metrics.recordEvaluation(
+          buildNanos,
+          elapsedNanos - buildNanos,
+          EvaluationMetrics.currentThreadAllocatedBytes() - allocatedBytes
+      );
+      return q;
+    };
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
+import io.github.ericmedvet.mrsim2d.viewer.VideoBuilder;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A consumer of snapshots which hands them to a {@link VideoBuilder} on a separate thread, through a bounded queue: the
+ * simulation goes on while frames are being drawn, and stops only if drawing lags behind by more than the queue
+ * capacity. Snapshots are drawn in order by a single thread, since drawers are stateful (e.g., they smoothly follow the
+ * agents). The video is encoded upon {@link #get()}, after all the snapshots have been drawn. The drawing thread stops
+ * upon {@link #get()} or upon {@link #close()}, which has to be invoked when the video is not needed anymore, e.g.,
+ * because the simulation failed: otherwise, the thread stays blocked on the queue.
+ */
+public class PipelinedVideoBuilder implements Consumer<Snapshot>, Supplier<File>, AutoCloseable {
+
+  private final static int QUEUE_CAPACITY = 256;
+  private final static Object END = new Object();
+
+  private final VideoBuilder videoBuilder;
+  private final BlockingQueue<Object> queue;
+  private final Thread drawingThread;
+  private volatile RuntimeException drawingException;
+
+  public PipelinedVideoBuilder(VideoBuilder videoBuilder) {
+    this.videoBuilder = videoBuilder;
+    queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    drawingThread = new Thread(this::draw, "video-drawer");
+    drawingThread.setDaemon(true);
+    drawingThread.start();
+  }
+
+  private void draw() {
+    try {
+      while (true) {
+        Object o = queue.take();
+        if (o == END) {
+          return;
+        }
+        // after a failure, snapshots are still taken, for not blocking the simulation
+        if (drawingException == null) {
+          try {
+            videoBuilder.accept((Snapshot) o);
+          } catch (RuntimeException e) {
+            drawingException = e;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void put(Object o) {
+    try {
+      queue.put(o);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void accept(Snapshot snapshot) {
+    if (drawingException != null) {
+      throw drawingException;
+    }
+    put(snapshot);
+  }
+
+  @Override
+  public void close() {
+    // the thread may be still waiting for snapshots, if the video has not been got
+    drawingThread.interrupt();
+  }
+
+  @Override
+  public File get() {
+    put(END);
+    try {
+      drawingThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    if (drawingException != null) {
+      throw drawingException;
+    }
+    return videoBuilder.get();
+  }
+}
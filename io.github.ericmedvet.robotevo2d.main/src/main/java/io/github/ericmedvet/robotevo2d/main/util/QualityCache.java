@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, thread-safe cache of qualities keyed by genotype, with least-recently-used eviction. The quality of a
+ * genotype not in the cache is computed outside the lock, hence two concurrent evaluations of the same genotype may
+ * both be computed.
+ */
+public class QualityCache<Q> {
+
+  private final Map<Key, Q> map;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  public QualityCache(int size) {
+    map = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Q> eldest) {
+        return size() > size;
+      }
+    };
+    hits = new AtomicLong();
+    misses = new AtomicLong();
+  }
+
+  private record Key(double[] genotype, String context) {
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key key)) {
+        return false;
+      }
+      return Arrays.equals(genotype, key.genotype) && context.equals(key.context);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(genotype) + context.hashCode();
+    }
+  }
+
+  public Q get(double[] genotype, String context, Supplier<Q> qualitySupplier) {
+    Key key = new Key(genotype, context);
+    Q q;
+    synchronized (map) {
+      q = map.get(key);
+    }
+    if (q != null) {
+      hits.incrementAndGet();
+      return q;
+    }
+    misses.incrementAndGet();
+    q = qualitySupplier.get();
+    synchronized (map) {
+      map.put(key, q);
+    }
+    return q;
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public double hitRate() {
+    long lookups = hits() + misses();
+    return lookups == 0 ? 0d : (double) hits() / (double) lookups;
+  }
+
+  @Override
+  public String toString() {
+    return "QualityCache{hits=%d; misses=%d; hitRate=%.2f}".formatted(hits(), misses(), hitRate());
+  }
+}
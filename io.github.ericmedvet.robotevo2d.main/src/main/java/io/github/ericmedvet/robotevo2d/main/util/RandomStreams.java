@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Independent random streams derived deterministically from a seed and from the context in which they are created,
+ * rather than drawn from a generator shared among threads. The context consists of the run, if any (see
+ * {@link RunKeyedExecutorService}), and, when an agent is built by a {@link MappedSupplier}, of its genotype: the
+ * {@code i}-th stream created while building the agent depends only on the seed, on the run, on the genotype, and on
+ * {@code i}, hence not on the order in which agents are built and evaluated by concurrent threads. Outside of a
+ * genotype context, streams depend on the seed, on the run, and on the order of creation on the current thread.
+ */
+public class RandomStreams {
+
+  private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  // key, index of the next stream, and run key
+  private final static ThreadLocal<long[]> CONTEXT = ThreadLocal.withInitial(() -> new long[]{0, 0, 0});
+
+  private RandomStreams() {
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  public static long key(double[] values) {
+    long key = values.length;
+    for (double value : values) {
+      key = mix(key + GOLDEN_GAMMA + Double.doubleToLongBits(value));
+    }
+    return key;
+  }
+
+  public static long key(byte[] bytes) {
+    long key = bytes.length;
+    for (byte b : bytes) {
+      key = mix(key + GOLDEN_GAMMA + b);
+    }
+    return key;
+  }
+
+  public static RandomGenerator next(long seed) {
+    long[] context = CONTEXT.get();
+    long index = context[1];
+    context[1] = index + 1;
+    return stream(seed, context[2], context[0], index);
+  }
+
+  public static long runKey() {
+    return CONTEXT.get()[2];
+  }
+
+  public static RandomGenerator stream(long seed, long runKey, long key, long index) {
+    return new SplittableRandom(mix(mix(mix(seed) + runKey) + key) + index * GOLDEN_GAMMA);
+  }
+
+  public static <T> T withKey(long key, Supplier<T> supplier) {
+    long[] context = CONTEXT.get();
+    long previousKey = context[0];
+    long previousIndex = context[1];
+    context[0] = key;
+    context[1] = 0;
+    try {
+      return supplier.get();
+    } finally {
+      context[0] = previousKey;
+      context[1] = previousIndex;
+    }
+  }
+
+  public static <T> T withRunKey(long runKey, Supplier<T> supplier) {
+    long[] context = CONTEXT.get();
+    long previousRunKey = context[2];
+    context[2] = runKey;
+    try {
+      return supplier.get();
+    } finally {
+      context[2] = previousRunKey;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.jgea.experimenter.Experiment;
+import io.github.ericmedvet.jgea.experimenter.Run;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The indexes of runs in the experiment as described, that are kept also when some of the runs are not actually
+ * performed (e.g., when resuming an experiment, for the already completed runs), and which experiments are resumed.
+ */
+public class RunIndexes {
+
+  private final static Map<Run<?, ?, ?, ?>, Integer> INDEXES = Collections.synchronizedMap(new IdentityHashMap<>());
+  private final static Set<Experiment> RESUMED_EXPERIMENTS = Collections.synchronizedSet(Collections.newSetFromMap(
+      new IdentityHashMap<>()));
+
+  private RunIndexes() {
+  }
+
+  public static boolean isResumed(Experiment experiment) {
+    return RESUMED_EXPERIMENTS.contains(experiment);
+  }
+
+  public static int of(Experiment experiment, Run<?, ?, ?, ?> run) {
+    Integer index = INDEXES.get(run);
+    return index != null ? index : experiment.runs().indexOf(run);
+  }
+
+  public static void set(Run<?, ?, ?, ?> run, int index) {
+    INDEXES.put(run, index);
+  }
+
+  public static void setResumed(Experiment experiment) {
+    RESUMED_EXPERIMENTS.add(experiment);
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor service which runs each task with the key of the run it belongs to, for {@link RandomStreams}. Tasks
+ * submitted by threads not running a task of this service are runs: the {@code i}-th of them gets the {@code i}-th
+ * key, since the experimenter submits the runs in the order of the experiment. Tasks submitted while running a task
+ * of any service of this kind (e.g., fitness evaluations, or listener tasks submitted by a run) get the key of the
+ * submitting task.
+ */
+public class RunKeyedExecutorService extends AbstractExecutorService {
+
+  private final static ThreadLocal<Boolean> IN_TASK = ThreadLocal.withInitial(() -> false);
+
+  private final ExecutorService executorService;
+  private final List<Long> runKeys;
+  private final AtomicInteger runCounter;
+
+  public RunKeyedExecutorService(ExecutorService executorService, List<Long> runKeys) {
+    this.executorService = executorService;
+    this.runKeys = runKeys;
+    runCounter = new AtomicInteger();
+  }
+
+  @Override
+  public void shutdown() {
+    executorService.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    return executorService.shutdownNow();
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return executorService.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return executorService.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executorService.awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    long runKey;
+    if (IN_TASK.get()) {
+      runKey = RandomStreams.runKey();
+    } else {
+      int index = runCounter.getAndIncrement();
+      runKey = index < runKeys.size() ? runKeys.get(index) : index;
+    }
+    executorService.execute(() -> {
+      boolean wasInTask = IN_TASK.get();
+      IN_TASK.set(true);
+      try {
+        RandomStreams.withRunKey(runKey, () -> {
+          command.run();
+          return null;
+        });
+      } finally {
+        IN_TASK.set(wasInTask);
+      }
+    });
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import io.github.ericmedvet.mrsim2d.core.Snapshot;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A registry of the snapshots recorded while simulating solutions, so that they can be replayed (e.g., for making a
+ * video) without simulating again. Snapshots are first recorded in a buffer owned by the evaluation: the buffer is then
+ * kept only if the solution ranks among the best ones recorded for the same task in the same run (see
+ * {@link RandomStreams#runKey()}), by a value computed on the outcome (the greater, the better): concurrent runs of
+ * the same task hence do not take the place of each other's traces. Solutions are weakly referenced: the trace of a
+ * solution which is no more referenced elsewhere (e.g., because it is not in the population anymore) is discarded, and
+ * its place is free for another one.
+ */
+public class SnapshotRecorder {
+
+  private final static Map<Key, List<Entry>> TRACES = new HashMap<>();
+
+  private SnapshotRecorder() {
+  }
+
+  private record Entry(WeakReference<Object> solution, double value, List<Snapshot> trace) {}
+
+  private record Key(long runKey, String taskDescription) {}
+
+  public static boolean keep(
+      Object solution,
+      String taskDescription,
+      List<Snapshot> trace,
+      double value,
+      int capacity
+  ) {
+    if (Double.isNaN(value) || capacity <= 0) {
+      return false;
+    }
+    synchronized (TRACES) {
+      List<Entry> entries = TRACES.computeIfAbsent(
+          new Key(RandomStreams.runKey(), taskDescription),
+          k -> new ArrayList<>()
+      );
+      // a solution evaluated again gets the latest trace, if any
+      entries.removeIf(e -> e.solution().get() == null || e.solution().get() == solution);
+      if (entries.size() >= capacity) {
+        Entry worst = entries.stream().min(Comparator.comparingDouble(Entry::value)).orElseThrow();
+        if (worst.value() >= value) {
+          return false;
+        }
+        entries.remove(worst);
+      }
+      entries.add(new Entry(new WeakReference<>(solution), value, List.copyOf(trace)));
+      return true;
+    }
+  }
+
+  public static Consumer<Snapshot> recorder(
+      List<Snapshot> trace,
+      double frameRate,
+      double startTime,
+      double endTime
+  ) {
+    double[] lastT = new double[]{Double.NEGATIVE_INFINITY};
+    // snapshots are taken with the same sampling of the video builder
+    return snapshot -> {
+      if (snapshot.t() >= startTime && snapshot.t() <= endTime && snapshot.t() - lastT[0] >= 1d / frameRate) {
+        lastT[0] = snapshot.t();
+        trace.add(snapshot);
+      }
+    };
+  }
+
+  public static Optional<List<Snapshot>> trace(Object solution, String taskDescription) {
+    synchronized (TRACES) {
+      return TRACES.getOrDefault(new Key(RandomStreams.runKey(), taskDescription), List.of()).stream()
+          .filter(e -> e.solution().get() == solution)
+          .map(Entry::trace)
+          .findFirst();
+    }
+  }
+
+}
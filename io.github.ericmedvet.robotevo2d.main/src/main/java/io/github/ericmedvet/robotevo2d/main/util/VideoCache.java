@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A directory of video files named after the hash of what determines their content (e.g., the genotype, the task, the
+ * drawer, and the video parameters). Files are hard-linked, or copied if linking is not possible, from and to the
+ * cache. The overall size of the cache is kept below a given size by removing the least recently used files, i.e., the
+ * ones with the oldest last modified time, which is updated upon each hit.
+ */
+public class VideoCache {
+
+  private final static Logger L = Logger.getLogger(VideoCache.class.getName());
+
+  private final static String EXTENSION = ".mp4";
+  private final static Object LOCK = new Object();
+
+  private final Path dirPath;
+  private final long maxBytes;
+
+  public VideoCache(String dirPath, long maxBytes) {
+    this.dirPath = Path.of(dirPath);
+    this.maxBytes = maxBytes;
+    try {
+      Files.createDirectories(this.dirPath);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create video cache dir %s".formatted(dirPath), e);
+    }
+  }
+
+  public static String key(double[] genotype, List<String> descriptions) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES * genotype.length);
+      for (double v : genotype) {
+        buffer.putDouble(v);
+      }
+      digest.update(buffer.array());
+      for (String description : descriptions) {
+        digest.update((byte) 0);
+        digest.update(description.getBytes(StandardCharsets.UTF_8));
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void linkOrCopy(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+    } catch (IOException | UnsupportedOperationException e) {
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private void evict() throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.list(dirPath)) {
+      paths = stream.filter(p -> p.toString().endsWith(EXTENSION)).sorted(Comparator.comparing(p -> {
+        try {
+          return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+          return FileTime.fromMillis(0);
+        }
+      })).toList();
+    }
+    long size = 0;
+    for (Path path : paths) {
+      size = size + Files.size(path);
+    }
+    for (Path path : paths) {
+      if (size <= maxBytes) {
+        break;
+      }
+      size = size - Files.size(path);
+      Files.delete(path);
+      L.fine("Video %s evicted from cache".formatted(path));
+    }
+  }
+
+  public Optional<File> get(String key, File file) {
+    // caches on the same dir may be used by many accumulators at the same time
+    synchronized (LOCK) {
+      Path cachedPath = dirPath.resolve(key + EXTENSION);
+      if (!Files.exists(cachedPath)) {
+        return Optional.empty();
+      }
+      try {
+        Files.setLastModifiedTime(cachedPath, FileTime.fromMillis(System.currentTimeMillis()));
+        linkOrCopy(cachedPath, file.toPath());
+        return Optional.of(file);
+      } catch (IOException e) {
+        L.warning("Cannot get video %s from cache: %s".formatted(key, e));
+        return Optional.empty();
+      }
+    }
+  }
+
+  public void put(String key, File file) {
+    synchronized (LOCK) {
+      try {
+        linkOrCopy(file.toPath(), dirPath.resolve(key + EXTENSION));
+        evict();
+      } catch (IOException e) {
+        L.warning("Cannot put video %s in cache: %s".formatted(key, e));
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * An executor service to be shared by all the runs of an experiment. Tasks submitted by threads not belonging to this
+ * service (i.e., runs) are executed on a fixed pool of {@code nOfRuns} threads, each one mostly waiting for the
+ * evaluations, hence at most {@code nOfRuns} runs go on at the same time; tasks submitted by those threads (i.e.,
+ * fitness evaluations) are executed on a single work-stealing pool with parallelism {@code nOfThreads}. Hence, cores
+ * left idle by runs which are over are used by the runs still going on. The throughput, in evaluations per
+ * second, is logged for each run, upon its completion, and overall, upon shutdown.
+ */
+public class WorkStealingExecutorService extends AbstractExecutorService {
+
+  private final static Logger L = Logger.getLogger(WorkStealingExecutorService.class.getName());
+
+  private final ExecutorService runExecutorService;
+  private final ExecutorService evaluationExecutorService;
+  private final ThreadLocal<RunStats> currentRunStats;
+  private final AtomicInteger runCounter;
+  private final AtomicLong overallEvaluations;
+  private final long startNanos;
+
+  public WorkStealingExecutorService(int nOfRuns, int nOfThreads) {
+    runExecutorService = Executors.newFixedThreadPool(nOfRuns);
+    evaluationExecutorService = Executors.newWorkStealingPool(nOfThreads);
+    currentRunStats = new ThreadLocal<>();
+    runCounter = new AtomicInteger();
+    overallEvaluations = new AtomicLong();
+    startNanos = System.nanoTime();
+  }
+
+  private static class RunStats {
+    private final int index;
+    private final long startNanos;
+    private final AtomicLong evaluations;
+
+    private RunStats(int index) {
+      this.index = index;
+      startNanos = System.nanoTime();
+      evaluations = new AtomicLong();
+    }
+  }
+
+  private static double throughput(long nOfEvaluations, long startNanos) {
+    return (double) nOfEvaluations / ((double) (System.nanoTime() - startNanos) / 1e9d);
+  }
+
+  @Override
+  public void shutdown() {
+    runExecutorService.shutdown();
+    evaluationExecutorService.shutdown();
+    L.info("Overall: %d evaluations in %.1fs (%.2f evaluations/s)".formatted(
+        overallEvaluations.get(),
+        (double) (System.nanoTime() - startNanos) / 1e9d,
+        throughput(overallEvaluations.get(), startNanos)
+    ));
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> runnables = new ArrayList<>(runExecutorService.shutdownNow());
+    runnables.addAll(evaluationExecutorService.shutdownNow());
+    return runnables;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return runExecutorService.isShutdown() && evaluationExecutorService.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return runExecutorService.isTerminated() && evaluationExecutorService.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    return runExecutorService.awaitTermination(timeout, unit) && evaluationExecutorService.awaitTermination(
+        Math.max(0, deadline - System.nanoTime()),
+        TimeUnit.NANOSECONDS
+    );
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    RunStats runStats = currentRunStats.get();
+    if (runStats != null) {
+      runStats.evaluations.incrementAndGet();
+      overallEvaluations.incrementAndGet();
+      evaluationExecutorService.execute(command);
+      return;
+    }
+    if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == evaluationExecutorService) {
+      evaluationExecutorService.execute(command);
+      return;
+    }
+    int index = runCounter.getAndIncrement();
+    runExecutorService.execute(() -> {
+      RunStats stats = new RunStats(index);
+      currentRunStats.set(stats);
+      try {
+        command.run();
+      } finally {
+        currentRunStats.remove();
+        L.info("Run %d: %d evaluations in %.1fs (%.2f evaluations/s)".formatted(
+            stats.index,
+            stats.evaluations.get(),
+            (double) (System.nanoTime() - stats.startNanos) / 1e9d,
+            throughput(stats.evaluations.get(), stats.startNanos)
+        ));
+      }
+    });
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2022 eric
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.github.ericmedvet.robotevo2d.main.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * A pool of worker JVMs, each running {@code io.github.ericmedvet.robotevo2d.main.Worker} with the same module path,
+ * main module, and class path of this JVM, to which evaluations are sent through the standard input and output of the
+ * worker process. A request consists of the description of the problem, the one of the mapper, and the genotype; the
+ * response is the quality, serialized, or the message of the exception thrown by the worker. Workers are started
+ * lazily; a worker which crashes is restarted and the evaluation is sent again, up to a few attempts. A worker which
+ * does not respond within the timeout, if positive, is killed and restarted, and the evaluation fails.
+ */
+public class WorkerPool implements AutoCloseable {
+
+  private final static Logger L = Logger.getLogger(WorkerPool.class.getName());
+
+  private final static String WORKER_CLASS_NAME = "io.github.ericmedvet.robotevo2d.main.Worker";
+  private final static int MAX_ATTEMPTS = 3;
+  private final static byte OK = 0;
+  private final static byte ERROR = 1;
+
+  private final static Map<String, WorkerPool> SHARED_POOLS = new HashMap<>();
+  private final static ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "worker-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final int nOfWorkers;
+  private final double timeout;
+  private final List<String> command;
+  private final BlockingQueue<WorkerProcess> idleWorkers;
+  private final List<WorkerProcess> workers;
+
+  public WorkerPool(int nOfWorkers, List<String> jvmOptions, double timeout) {
+    this.nOfWorkers = nOfWorkers;
+    this.timeout = timeout;
+    command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.addAll(jvmOptions);
+    // workers are launched as this JVM: on its module path (if any) and class path, with its main module (if any)
+    String modulePath = System.getProperty("jdk.module.path", "");
+    String classPath = System.getProperty("java.class.path", "");
+    if (!modulePath.isEmpty()) {
+      command.addAll(List.of("--module-path", modulePath));
+    }
+    if (!classPath.isEmpty()) {
+      command.addAll(List.of("-cp", classPath));
+    }
+    Module module = WorkerPool.class.getModule();
+    if (module.isNamed()) {
+      command.addAll(List.of("-m", "%s/%s".formatted(module.getName(), WORKER_CLASS_NAME)));
+    } else {
+      command.add(WORKER_CLASS_NAME);
+    }
+    idleWorkers = new LinkedBlockingQueue<>();
+    workers = new ArrayList<>();
+    Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+  }
+
+  public record Request(String problemDescription, String mapperDescription, long runKey, double[] genotype) {}
+
+  private static class WorkerProcess {
+    private final Process process;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private volatile boolean timedOut;
+
+    private WorkerProcess(List<String> command) throws IOException {
+      process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+      out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+      in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    private Object evaluate(Request request, double timeout) throws IOException {
+      writeRequest(out, request);
+      // when the timeout expires, the worker is killed, hence reading its response fails
+      ScheduledFuture<?> watchdog = timeout > 0 ? WATCHDOG.schedule(() -> {
+        timedOut = true;
+        process.destroyForcibly();
+      }, Math.round(timeout * 1e9d), TimeUnit.NANOSECONDS) : null;
+      byte[] bytes;
+      try {
+        byte status = in.readByte();
+        if (status == ERROR) {
+          throw new RuntimeException("Worker %d failed: %s".formatted(process.pid(), readString(in)));
+        }
+        bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+      } finally {
+        if (watchdog != null) {
+          watchdog.cancel(false);
+        }
+      }
+      return deserialize(bytes);
+    }
+  }
+
+  public static WorkerPool shared(int nOfWorkers, List<String> jvmOptions, double timeout) {
+    synchronized (SHARED_POOLS) {
+      return SHARED_POOLS.computeIfAbsent(
+          "%d %s %s".formatted(nOfWorkers, jvmOptions, timeout),
+          k -> new WorkerPool(nOfWorkers, jvmOptions, timeout)
+      );
+    }
+  }
+
+  public static Request readRequest(DataInputStream in) throws IOException {
+    String problemDescription = readString(in);
+    String mapperDescription = readString(in);
+    long runKey = in.readLong();
+    double[] genotype = new double[in.readInt()];
+    for (int i = 0; i < genotype.length; i++) {
+      genotype[i] = in.readDouble();
+    }
+    return new Request(problemDescription, mapperDescription, runKey, genotype);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static void writeError(DataOutputStream out, Throwable throwable) throws IOException {
+    out.writeByte(ERROR);
+    writeString(out, throwable.toString());
+    out.flush();
+  }
+
+  public static Object deserialize(byte[] serializedQuality) throws IOException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serializedQuality))) {
+      return ois.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  public static Object roundTrip(Object quality) throws IOException {
+    return deserialize(serialize(quality));
+  }
+
+  public static byte[] serialize(Object quality) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+      oos.writeObject(quality);
+    }
+    return baos.toByteArray();
+  }
+
+  public static void writeQuality(DataOutputStream out, byte[] serializedQuality) throws IOException {
+    out.writeByte(OK);
+    out.writeInt(serializedQuality.length);
+    out.write(serializedQuality);
+    out.flush();
+  }
+
+  private static void writeRequest(DataOutputStream out, Request request) throws IOException {
+    writeString(out, request.problemDescription());
+    writeString(out, request.mapperDescription());
+    out.writeLong(request.runKey());
+    out.writeInt(request.genotype().length);
+    for (double v : request.genotype()) {
+      out.writeDouble(v);
+    }
+    out.flush();
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void close() {
+    synchronized (workers) {
+      workers.forEach(w -> w.process.destroy());
+      workers.clear();
+    }
+  }
+
+  public Object evaluate(Request request) {
+    WorkerProcess worker = take();
+    try {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          return worker.evaluate(request, timeout);
+        } catch (IOException e) {
+          if (worker.timedOut) {
+            L.warning("Worker %d killed after %.1fs".formatted(worker.process.pid(), timeout));
+            worker = restart(worker);
+            throw new RuntimeException("Evaluation timed out after %.1fs".formatted(timeout), e);
+          }
+          L.warning("Worker %d crashed at attempt %d of %d: %s".formatted(
+              worker.process.pid(),
+              attempt,
+              MAX_ATTEMPTS,
+              e
+          ));
+          worker = restart(worker);
+          if (attempt >= MAX_ATTEMPTS) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }
+    } finally {
+      if (worker.timedOut) {
+        // the watchdog fired just after the response
+        worker = restart(worker);
+      }
+      idleWorkers.add(worker);
+    }
+  }
+
+  private WorkerProcess restart(WorkerProcess worker) {
+    worker.process.destroyForcibly();
+    synchronized (workers) {
+      workers.remove(worker);
+      return start();
+    }
+  }
+
+  private WorkerProcess start() {
+    try {
+      WorkerProcess worker = new WorkerProcess(command);
+      workers.add(worker);
+      L.fine("Worker %d started".formatted(worker.process.pid()));
+      return worker;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot start worker with %s".formatted(command), e);
+    }
+  }
+
+  private WorkerProcess take() {
+    WorkerProcess worker = idleWorkers.poll();
+    if (worker != null) {
+      return worker;
+    }
+    synchronized (workers) {
+      if (workers.size() < nOfWorkers) {
+        return start();
+      }
+    }
+    try {
+      return idleWorkers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -6,6 +6,8 @@ module io.github.ericmedvet.robotevo2d.main {
   requires io.github.ericmedvet.jgea.experimenter;
   requires java.desktop;
   requires java.logging;
+  requires java.management;
+  requires jdk.management;
   requires io.github.ericmedvet.mrsim2d.core;
   requires io.github.ericmedvet.mrsim2d.viewer;
   requires io.github.ericmedvet.mrsim2d.buildable;
@@ -16,4 +18,6 @@ module io.github.ericmedvet.robotevo2d.main {
   opens io.github.ericmedvet.robotevo2d.main.helper to io.github.ericmedvet.jnb.core;
   exports io.github.ericmedvet.robotevo2d.main;
   exports io.github.ericmedvet.robotevo2d.main.helper;
+  exports io.github.ericmedvet.robotevo2d.main.functions;
+  exports io.github.ericmedvet.robotevo2d.main.util;
 }
\ No newline at end of file